@@ -0,0 +1,291 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Provisions app data, config, cache and temporary directories on first access, and remembers success,
+ * so later accesses are a single volatile read instead of a file system check.<br>
+ * Directories are created with {@link Files#createDirectories(Path, java.nio.file.attribute.FileAttribute[])}, which tolerates
+ * other threads and processes creating them concurrently.<br>
+ * Note: Paths are built once at construction, later {@link SystemPath} overrides do not affect existing instances.
+ * @see PathHelper#buildAppDataPath(String, String, String)
+ */
+public final class AppDirectories {
+
+    /**
+     * A directory created at most once until reset.
+     */
+    private static final class Directory {
+        final Path path;
+        volatile boolean provisioned;
+        Directory(Path path) {
+            this.path = path;
+        }
+        Path get() throws IOException {
+            if (!provisioned) {
+                synchronized (this) {
+                    if (!provisioned) {
+                        Files.createDirectories(path);
+                        provisioned = true;
+                    }
+                }
+            }
+            return path;
+        }
+    }
+
+    /**
+     * A sharded directory tree created at most once until reset.
+     */
+    private static final class Shards {
+        final PathPrefix prefix;
+        final int levels;
+        final int width;
+        volatile boolean provisioned;
+        Shards(PathPrefix prefix, int levels, int width) {
+            this.prefix = prefix;
+            this.levels = levels;
+            this.width = width;
+        }
+    }
+
+    private static final class ShardsKey {
+        SystemPath.Location location;
+        String child;
+        int levels;
+        int width;
+        int hash;
+
+        ShardsKey set(SystemPath.Location location, String child, int levels, int width) {
+            this.location = location;
+            this.child = child;
+            this.levels = levels;
+            this.width = width;
+            hash = ((location.hashCode() * 31 + Objects.hashCode(child)) * 31 + levels) * 31 + width;
+            return this;
+        }
+
+        ShardsKey copy() {
+            return new ShardsKey().set(location, child, levels, width);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof ShardsKey)) return false;
+            ShardsKey other = (ShardsKey) object;
+            return location == other.location && Objects.equals(child, other.child)
+                    && levels == other.levels && width == other.width;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final ThreadLocal<ShardsKey> shardsProbe = ThreadLocal.withInitial(ShardsKey::new);
+
+    private final Directory[] directories = new Directory[SystemPath.Location.values().length];
+    private final ConcurrentHashMap<ShardsKey, Shards> shards = new ConcurrentHashMap<>();
+
+    /**
+     * Create app directories with companyName, appType and appName. All of them can be null.
+     *
+     * @param companyName company name
+     * @param appType app type
+     * @param appName app name
+     */
+    public AppDirectories(String companyName, String appType, String appName) {
+        directories[SystemPath.Location.DATA.ordinal()] = new Directory(Paths.get(PathHelper.buildAppDataPath(companyName, appType, appName)));
+        directories[SystemPath.Location.CONFIG.ordinal()] = new Directory(Paths.get(PathHelper.buildAppConfigPath(companyName, appType, appName)));
+        directories[SystemPath.Location.CACHE.ordinal()] = new Directory(Paths.get(PathHelper.buildAppCachePath(companyName, appType, appName)));
+        directories[SystemPath.Location.TEMPORARY.ordinal()] = new Directory(Paths.get(PathHelper.buildAppTemporaryPath(companyName, appType, appName)));
+    }
+
+    /**
+     * Create app directories with companyName and appName. All of them can be null.
+     *
+     * @param companyName company name
+     * @param appName app name
+     */
+    public AppDirectories(String companyName, String appName) {
+        this(companyName, null, appName);
+    }
+
+    /**
+     * Create app directories with appName. It can be null.
+     *
+     * @param appName app name
+     */
+    public AppDirectories(String appName) {
+        this(null, null, appName);
+    }
+
+    /**
+     * Gets app data dir, creating it on first access.
+     *
+     * @return app data dir
+     * @throws IOException if failed to create dir
+     */
+    public Path data() throws IOException {
+        return get(SystemPath.Location.DATA);
+    }
+
+    /**
+     * Gets app config dir, creating it on first access.
+     *
+     * @return app config dir
+     * @throws IOException if failed to create dir
+     */
+    public Path config() throws IOException {
+        return get(SystemPath.Location.CONFIG);
+    }
+
+    /**
+     * Gets app cache dir, creating it on first access.
+     *
+     * @return app cache dir
+     * @throws IOException if failed to create dir
+     */
+    public Path cache() throws IOException {
+        return get(SystemPath.Location.CACHE);
+    }
+
+    /**
+     * Gets app temporary dir, creating it on first access.
+     *
+     * @return app temporary dir
+     * @throws IOException if failed to create dir
+     */
+    public Path temporary() throws IOException {
+        return get(SystemPath.Location.TEMPORARY);
+    }
+
+    /**
+     * Gets app dir of given location, creating it on first access.
+     *
+     * @param location dir location, cannot be {@link SystemPath.Location#HOME}
+     * @return app dir
+     * @throws IOException if failed to create dir
+     */
+    public Path get(SystemPath.Location location) throws IOException {
+        return directory(location).get();
+    }
+
+    /**
+     * Create all app dirs in parallel, if not created yet.
+     *
+     * @throws IOException if failed to create any dir
+     */
+    public void provisionAll() throws IOException {
+        try {
+            Stream.of(directories).filter(directory -> directory != null && !directory.provisioned).parallel().forEach(directory -> {
+                try {
+                    directory.get();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Gets hex sharded layout under child of app dir, creating all 16^(levels * width) shard dirs in parallel on first access.
+     * e.g. 2 levels of width 2 creates "child/00/00" to "child/ff/ff", then {@link PathPrefix#shard(String, int, int)} with same
+     * levels and width gives paths whose parent dirs exist.
+     *
+     * @param location dir location, cannot be {@link SystemPath.Location#HOME}
+     * @param child child dir of app dir, can be null
+     * @param levels count of dir levels
+     * @param width count of hex chars per dir name
+     * @return prefix of sharded layout
+     * @throws IOException if failed to create dirs
+     */
+    public PathPrefix shards(SystemPath.Location location, String child, int levels, int width) throws IOException {
+        Directory directory = directory(location);
+        ShardsKey key = shardsProbe.get().set(location, child, levels, width);
+        Shards shards = this.shards.get(key);
+        if (shards == null) {
+            PathPrefix prefix = PathHelper.under(directory.path.toString(), child);
+            // Validate levels and width before caching
+            prefix.shardDirectories(levels, width);
+            shards = this.shards.computeIfAbsent(key.copy(), k -> new Shards(prefix, levels, width));
+        }
+        if (!shards.provisioned) {
+            synchronized (shards) {
+                if (!shards.provisioned) {
+                    directory.get();
+                    try {
+                        shards.prefix.shardDirectories(shards.levels, shards.width).parallel().forEach(path -> {
+                            try {
+                                Files.createDirectories(Paths.get(path));
+                            }
+                            catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    }
+                    catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    shards.provisioned = true;
+                }
+            }
+        }
+        return shards.prefix;
+    }
+
+    /**
+     * Forget created dirs, so they are checked and created again on next access, e.g. after a cleaner removed temporary files.
+     */
+    public void reset() {
+        for (Directory directory : directories) {
+            if (directory != null) directory.provisioned = false;
+        }
+        for (Shards shards : this.shards.values()) shards.provisioned = false;
+    }
+
+    private Directory directory(SystemPath.Location location) {
+        if (location == null) throw new NullPointerException("Unable to get app dir: \nlocation cannot be null.");
+        Directory directory = directories[location.ordinal()];
+        if (directory == null) throw new IllegalArgumentException("Unable to get app dir: \nunsupported location " + location + ".");
+        return directory;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Simple RFC 4648 base32 encoder and decoder without padding, e.g. for case-insensitive file names and keys derived from digests.
+ * @see HexCodec
+ */
+public final class Base32Codec {
+
+    private Base32Codec(){}
+
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 5-bit value of every ASCII char, -1 if not a base32 digit. Lower-case letters are accepted.
+     */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i ++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+            VALUES[Character.toLowerCase(ALPHABET[i])] = (byte) i;
+        }
+    }
+
+    /**
+     * Gets count of chars of encoded bytes.
+     *
+     * @param length count of bytes
+     * @return count of base32 chars
+     */
+    public static int encodedLength(int length) {
+        return (int) (((long) length * 8 + 4) / 5);
+    }
+
+    /**
+     * Encode bytes to upper-case base32 string without padding.
+     *
+     * @param input bytes to encode
+     * @return base32 string
+     */
+    public static String encode(byte[] input) {
+        if (input == null) throw new NullPointerException("Unable to encode base32: \ninput cannot be null.");
+        byte[] ascii = new byte[encodedLength(input.length)];
+        encode(input, 0, input.length, ascii, 0);
+        return new String(ascii, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encode bytes as ASCII base32 digits into byte array.
+     *
+     * @param src bytes to encode
+     * @param offset start offset in src
+     * @param length count of bytes to encode
+     * @param dst destination, must have room for {@link Base32Codec#encodedLength(int)} bytes
+     * @param dstOffset start offset in dst
+     * @return count of bytes written
+     * @throws IndexOutOfBoundsException if a range is out of bounds, nothing is written then
+     */
+    public static int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        checkRange(src.length, offset, length);
+        checkRange(dst.length, dstOffset, ((long) length * 8 + 4) / 5);
+        int start = dstOffset;
+        int buffer = 0;
+        int bits = 0;
+        for (int i = offset, end = offset + length; i < end; i ++) {
+            buffer = (buffer << 8) | (src[i] & 0xFF);
+            bits += 8;
+            while (bits >= 5) {
+                bits -= 5;
+                dst[dstOffset ++] = ALPHABET[(buffer >>> bits) & 0x1F];
+            }
+        }
+        if (bits > 0) dst[dstOffset ++] = ALPHABET[(buffer << (5 - bits)) & 0x1F];
+        return dstOffset - start;
+    }
+
+    /**
+     * Decode base32 string without padding to bytes, digits can be in either case.
+     *
+     * @param base32 base32 string
+     * @return decoded bytes
+     */
+    public static byte[] decode(CharSequence base32) {
+        if (base32 == null) throw new NullPointerException("Unable to decode base32: \nbase32 cannot be null.");
+        int length = base32.length();
+        int remainder = length % 8;
+        if (remainder == 1 || remainder == 3 || remainder == 6) throw new IllegalArgumentException("Unable to decode base32: \ninvalid length.");
+        byte[] result = new byte[(int) ((long) length * 5 / 8)];
+        int buffer = 0;
+        int bits = 0;
+        int position = 0;
+        for (int i = 0; i < length; i ++) {
+            char c = base32.charAt(i);
+            int value = c < 128 ? VALUES[c] : -1;
+            if (value < 0) throw new IllegalArgumentException("Unable to decode base32: \ninvalid char at index " + i + ".");
+            buffer = (buffer << 5) | value;
+            bits += 5;
+            if (bits >= 8) {
+                bits -= 8;
+                result[position ++] = (byte) (buffer >>> bits);
+            }
+        }
+        return result;
+    }
+
+    private static void checkRange(int arrayLength, int offset, long length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length)
+            throw new IndexOutOfBoundsException("Unable to access array: \nrange out of bounds.");
+    }
+
+}
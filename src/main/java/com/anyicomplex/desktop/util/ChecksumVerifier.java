@@ -0,0 +1,281 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifier of sha256sum/md5sum-style checksum manifests, each line is a hex digest, a space, a space or '*', then file path.
+ * Listed files are verified in parallel while the manifest is still being read, so huge manifests are never loaded at once.<br>
+ * Note: Relative paths are resolved against the directory containing the manifest. Blank lines and lines starting with '#' are ignored.
+ * @see DirectoryHash#writeManifest(Path)
+ */
+public final class ChecksumVerifier {
+
+    private ChecksumVerifier(){}
+
+    /**
+     * Receives result of each verified file, called from worker threads.<br>
+     * Note: A file whose listener call throws is counted as failed.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a file is verified.
+         *
+         * @param file the verified file
+         * @param matched whether file digest matches the manifest
+         * @param error error while reading or hashing file, null if file was hashed
+         */
+        void onVerified(Path file, boolean matched, IOException error);
+
+    }
+
+    /**
+     * Summary of verification.
+     */
+    public static final class Result {
+
+        private final int verified;
+        private final List<Path> failures;
+        private final boolean stopped;
+
+        private Result(int verified, List<Path> failures, boolean stopped) {
+            this.verified = verified;
+            this.failures = failures;
+            this.stopped = stopped;
+        }
+
+        /**
+         * Gets count of verified files, including failed ones.
+         * @return verified file count
+         */
+        public int getVerified() {
+            return verified;
+        }
+
+        /**
+         * Gets files that mismatched or could not be read.
+         * @return unmodifiable list of failed files
+         */
+        public List<Path> getFailures() {
+            return failures;
+        }
+
+        /**
+         * Gets whether verification stopped early on failure, in which case not every listed file was verified.
+         * @return whether stopped early
+         */
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * Gets whether every verified file matched.
+         * @return whether succeeded
+         */
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+
+    }
+
+    /**
+     * Verify every file in manifest, hash type is inferred from digest length, one thread per available processor.
+     * @see ChecksumVerifier#verify(Path, String, int, boolean, Listener)
+     *
+     * @param manifest manifest file
+     * @return verification result
+     * @throws IOException if manifest cannot be read or is malformed
+     */
+    public static Result verify(Path manifest) throws IOException {
+        return verify(manifest, null, Runtime.getRuntime().availableProcessors(), false, null);
+    }
+
+    /**
+     * Verify files in manifest in parallel. Digests are compared in constant time.
+     *
+     * @param manifest manifest file
+     * @param type hash type, null to infer from digest length (MD5, SHA-1, SHA-224, SHA-256, SHA-384 or SHA-512)
+     * @param parallelism count of files verified at the same time, must be positive
+     * @param stopOnFirstFailure whether to stop at first mismatched or unreadable file
+     * @param listener receives result of each file, can be null
+     * @return verification result
+     * @throws IOException if manifest cannot be read or is malformed
+     * @throws IllegalArgumentException if type is not supported
+     */
+    public static Result verify(Path manifest, String type, int parallelism, boolean stopOnFirstFailure, Listener listener) throws IOException {
+        if (manifest == null) throw new NullPointerException("Unable to verify: \nmanifest cannot be null.");
+        if (parallelism <= 0) throw new IllegalArgumentException("Unable to verify: \nparallelism must be positive.");
+        if (type != null) {
+            try {
+                MessageDigestHelper.digestLength(type);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Unable to verify: \nunsupported type " + type + ".", e);
+            }
+        }
+        Path base = manifest.toAbsolutePath().getParent();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicInteger verified = new AtomicInteger();
+        List<Path> failures = Collections.synchronizedList(new ArrayList<>());
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while (!stop.get() && (line = reader.readLine()) != null) {
+                number ++;
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                Entry entry = parse(line, number, type);
+                Path file = base == null ? Paths.get(entry.file) : base.resolve(entry.file);
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        if (stop.get()) return;
+                        boolean matched = false;
+                        IOException error = null;
+                        try {
+                            matched = MessageDigest.isEqual(entry.digest, MessageDigestHelper.hash(entry.type, file));
+                        } catch (IOException e) {
+                            error = e;
+                        } catch (RuntimeException e) {
+                            error = new IOException("Unable to verify: \n" + e, e);
+                        }
+                        verified.incrementAndGet();
+                        if (!matched) fail(failures, file, stopOnFirstFailure, stop);
+                        if (listener != null) {
+                            try {
+                                listener.onVerified(file, matched, error);
+                            } catch (RuntimeException e) {
+                                if (matched) fail(failures, file, stopOnFirstFailure, stop);
+                            }
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Unable to verify: \ninterrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(verified.get(), Collections.unmodifiableList(new ArrayList<>(failures)), stop.get());
+    }
+
+    private static void fail(List<Path> failures, Path file, boolean stopOnFirstFailure, AtomicBoolean stop) {
+        failures.add(file);
+        if (stopOnFirstFailure) stop.set(true);
+    }
+
+    private static final class Entry {
+
+        final String type;
+        final byte[] digest;
+        final String file;
+
+        Entry(String type, byte[] digest, String file) {
+            this.type = type;
+            this.digest = digest;
+            this.file = file;
+        }
+
+    }
+
+    private static Entry parse(String line, int number, String type) throws IOException {
+        boolean escaped = line.startsWith("\\");
+        int start = escaped ? 1 : 0;
+        int space = line.indexOf(' ', start);
+        if (space < 0 || space + 2 > line.length() || (line.charAt(space + 1) != ' ' && line.charAt(space + 1) != '*'))
+            throw new IOException("Unable to verify: \nmalformed manifest line " + number + ".");
+        String hex = line.substring(start, space);
+        String file = line.substring(space + 2);
+        if (escaped) file = unescape(file);
+        byte[] digest;
+        try {
+            digest = HexCodec.decode(hex);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unable to verify: \ninvalid digest at manifest line " + number + ".", e);
+        }
+        String entryType = type == null ? inferType(digest.length) : type;
+        if (entryType == null) throw new IOException("Unable to verify: \nunknown digest length at manifest line " + number + ".");
+        return new Entry(entryType, digest, file);
+    }
+
+    private static String inferType(int length) {
+        switch (length) {
+            case 16:
+                return MessageDigestHelper.HashType.MD5;
+            case 20:
+                return MessageDigestHelper.HashType.SHA1;
+            case 28:
+                return MessageDigestHelper.HashType.SHA224;
+            case 32:
+                return MessageDigestHelper.HashType.SHA256;
+            case 48:
+                return MessageDigestHelper.HashType.SHA384;
+            case 64:
+                return MessageDigestHelper.HashType.SHA512;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Undo GNU coreutils escaping of file names containing backslash or newline.
+     */
+    private static String unescape(String file) {
+        StringBuilder builder = new StringBuilder(file.length());
+        for (int i = 0; i < file.length(); i ++) {
+            char c = file.charAt(i);
+            if (c == '\\' && i + 1 < file.length()) {
+                char next = file.charAt(++ i);
+                builder.append(next == 'n' ? '\n' : next);
+            }
+            else builder.append(c);
+        }
+        return builder.toString();
+    }
+
+}
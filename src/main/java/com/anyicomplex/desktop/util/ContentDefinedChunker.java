@@ -0,0 +1,276 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Content-defined chunker (FastCDC with Gear rolling hash) for delta sync and deduplication. Chunk boundaries depend on content only,
+ * so inserting or removing bytes changes just the chunks around the edit, and unchanged chunks keep their digests.<br>
+ * Note: Data is streamed through a buffer of twice max chunk size, the input is never held in memory as a whole.
+ * @see MessageDigestHelper
+ */
+public final class ContentDefinedChunker {
+
+    /**
+     * Default min chunk size, 2 KiB.
+     */
+    public static final int DEFAULT_MIN_SIZE = 2 * 1024;
+    /**
+     * Default average chunk size, 8 KiB.
+     */
+    public static final int DEFAULT_AVG_SIZE = 8 * 1024;
+    /**
+     * Default max chunk size, 64 KiB.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+    /**
+     * Gear table, 256 pseudo-random 64-bit values from a fixed SplitMix64 sequence, so boundaries are stable across runs and versions.
+     */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < GEAR.length; i ++) {
+            long z = (seed += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    /**
+     * A chunk of input.
+     */
+    public static final class Chunk {
+
+        private final long offset;
+        private final int length;
+        private final byte[] digest;
+
+        private Chunk(long offset, int length, byte[] digest) {
+            this.offset = offset;
+            this.length = length;
+            this.digest = digest;
+        }
+
+        /**
+         * Gets offset of chunk in input.
+         * @return offset
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Gets length of chunk.
+         * @return length
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Gets strong digest of chunk content.
+         * @return digest
+         */
+        public byte[] getDigest() {
+            return digest.clone();
+        }
+
+    }
+
+    private final String type;
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long strictMask;
+    private final long looseMask;
+
+    /**
+     * Create chunker with default sizes.
+     *
+     * @param type hash type of chunk digests
+     */
+    public ContentDefinedChunker(String type) {
+        this(type, DEFAULT_MIN_SIZE, DEFAULT_AVG_SIZE, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Create chunker. Chunk sizes are normalized around avgSize: cutting is harder before it and easier after it.
+     *
+     * @param type hash type of chunk digests
+     * @param minSize min chunk size, at least 64
+     * @param avgSize expected average chunk size, greater than minSize
+     * @param maxSize max chunk size, greater than avgSize
+     */
+    public ContentDefinedChunker(String type, int minSize, int avgSize, int maxSize) {
+        if (type == null) throw new NullPointerException("Unable to create chunker: \ntype cannot be null.");
+        if (minSize < 64 || avgSize <= minSize || maxSize <= avgSize || maxSize > Integer.MAX_VALUE / 2)
+            throw new IllegalArgumentException("Unable to create chunker: \nsizes must satisfy 64 <= minSize < avgSize < maxSize.");
+        this.type = type;
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+        this.strictMask = topBits(bits + 1);
+        this.looseMask = topBits(bits - 1);
+    }
+
+    private static long topBits(int count) {
+        return count <= 0 ? 0 : -1L << (64 - count);
+    }
+
+    /**
+     * Split file into chunks.
+     *
+     * @param path the input file
+     * @return chunks in order
+     * @throws IOException if an I/O error occurs
+     */
+    public List<Chunk> chunk(Path path) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        chunk(path, chunks::add);
+        return chunks;
+    }
+
+    /**
+     * Split file into chunks, each chunk is passed to consumer as soon as it is found.
+     *
+     * @param path the input file
+     * @param consumer receives chunks in order
+     * @throws IOException if an I/O error occurs
+     */
+    public void chunk(Path path, Consumer<Chunk> consumer) throws IOException {
+        if (path == null) throw new NullPointerException("Unable to chunk: \npath cannot be null.");
+        try (InputStream input = Files.newInputStream(path)) {
+            chunk(input, consumer);
+        }
+    }
+
+    /**
+     * Split all remaining data of input stream into chunks, each chunk is passed to consumer as soon as it is found. The stream will not be closed.
+     *
+     * @param input the input stream
+     * @param consumer receives chunks in order
+     * @throws IOException if an I/O error occurs
+     */
+    public void chunk(InputStream input, Consumer<Chunk> consumer) throws IOException {
+        if (input == null) throw new NullPointerException("Unable to chunk: \ninput cannot be null.");
+        if (consumer == null) throw new NullPointerException("Unable to chunk: \nconsumer cannot be null.");
+        byte[] buffer = new byte[maxSize * 2];
+        int start = 0;
+        int end = 0;
+        boolean eof = false;
+        long offset = 0;
+        MessageDigest digest = MessageDigestHelper.obtain(type);
+        try {
+            while (true) {
+                if (!eof && end - start < maxSize) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                    while (end < buffer.length) {
+                        int read = input.read(buffer, end, buffer.length - end);
+                        if (read == -1) {
+                            eof = true;
+                            break;
+                        }
+                        end += read;
+                    }
+                }
+                if (start == end) break;
+                int length = cutPoint(buffer, start, Math.min(end - start, maxSize));
+                digest.update(buffer, start, length);
+                consumer.accept(new Chunk(offset, length, digest.digest()));
+                offset += length;
+                start += length;
+            }
+        } finally {
+            MessageDigestHelper.free(digest);
+        }
+    }
+
+    /**
+     * Find length of next chunk starting at offset with at most available bytes.
+     */
+    private int cutPoint(byte[] buffer, int offset, int available) {
+        if (available <= minSize) return available;
+        int normal = Math.min(avgSize, available);
+        long fingerprint = 0;
+        int i = minSize;
+        for (; i < normal; i ++) {
+            fingerprint = (fingerprint << 1) + GEAR[buffer[offset + i] & 0xFF];
+            if ((fingerprint & strictMask) == 0) return i + 1;
+        }
+        for (; i < available; i ++) {
+            fingerprint = (fingerprint << 1) + GEAR[buffer[offset + i] & 0xFF];
+            if ((fingerprint & looseMask) == 0) return i + 1;
+        }
+        return available;
+    }
+
+    /**
+     * Gets hash type of chunk digests.
+     * @return hash type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets min chunk size.
+     * @return min size
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Gets expected average chunk size.
+     * @return average size
+     */
+    public int getAvgSize() {
+        return avgSize;
+    }
+
+    /**
+     * Gets max chunk size.
+     * @return max size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+}
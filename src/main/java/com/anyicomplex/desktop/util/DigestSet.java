@@ -0,0 +1,424 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-compact set of fixed-width digests for fast membership tests on millions of hashes, e.g. dedup or "already processed" checks.<br>
+ * Digests are stored inline in a single open-addressing long[] table, about (digest length rounded up to 8) / 0.75 bytes per entry,
+ * instead of one hex String object per entry. An optional blocked Bloom filter in front answers most negative lookups with one cache line.<br>
+ * Note: The set can be persisted with {@link DigestSet#save(Path)}, e.g. under {@link PathHelper#buildAppCachePath(String, String, String)}.<br>
+ * Note: Not thread-safe, guard with external locking if shared between threads.
+ * @see MessageDigestHelper#hashBatch(String, byte[][])
+ */
+public final class DigestSet {
+
+    private static final long MAGIC = 0x4449474553545331L;
+    private static final int HEADER_SIZE = 40;
+    private static final int IO_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_SLOTS = 1 << 30;
+    private static final double MAX_LOAD = 0.75;
+
+    /**
+     * Count of longs in a Bloom filter block, one 64-byte cache line.
+     */
+    private static final int BLOOM_BLOCK = 8;
+    private static final int BLOOM_HASHES = 7;
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+
+    private final int digestLength;
+    private final int stride;
+    private long[] keys;
+    private long[] used;
+    private int mask;
+    private long size;
+    private final long[] bloom;
+
+    /**
+     * Create digest set without Bloom filter.
+     *
+     * @param digestLength length in bytes of each digest, e.g. {@link MessageDigestHelper#digestLength(String)}
+     */
+    public DigestSet(int digestLength) {
+        this(digestLength, 1024, false);
+    }
+
+    /**
+     * Create digest set.
+     *
+     * @param digestLength length in bytes of each digest
+     * @param expectedSize expected count of digests, used to size table and Bloom filter
+     * @param bloomFilter whether to put a Bloom filter in front of table for negative lookups, it is sized for expectedSize
+     */
+    public DigestSet(int digestLength, long expectedSize, boolean bloomFilter) {
+        if (digestLength <= 0) throw new IllegalArgumentException("Unable to create digest set: \ndigestLength must be positive.");
+        if (expectedSize < 0) throw new IllegalArgumentException("Unable to create digest set: \nexpectedSize cannot be negative.");
+        this.digestLength = digestLength;
+        this.stride = (digestLength + 7) >>> 3;
+        allocate(slotsFor(expectedSize));
+        if (bloomFilter) {
+            long blocks = Math.max(1, (expectedSize * BLOOM_BITS_PER_ENTRY + 511) / 512);
+            if (blocks * BLOOM_BLOCK > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Unable to create digest set: \nexpectedSize too large for Bloom filter.");
+            this.bloom = new long[(int) (blocks * BLOOM_BLOCK)];
+        }
+        else this.bloom = null;
+    }
+
+    private DigestSet(int digestLength, int slots, long size, long[] keys, long[] used, long[] bloom) {
+        this.digestLength = digestLength;
+        this.stride = (digestLength + 7) >>> 3;
+        this.keys = keys;
+        this.used = used;
+        this.mask = slots - 1;
+        this.size = size;
+        this.bloom = bloom;
+    }
+
+    /**
+     * Add digest.
+     *
+     * @param digest digest of {@link DigestSet#getDigestLength()} bytes
+     * @return true if digest was not in set
+     */
+    public boolean add(byte[] digest) {
+        checkLength(digest);
+        return add(digest, 0);
+    }
+
+    /**
+     * Add digest at offset of array, e.g. one entry of flat output of {@link MessageDigestHelper#hashBatch(String, byte[][])}.
+     *
+     * @param digests array containing digest
+     * @param offset start offset of digest
+     * @return true if digest was not in set
+     */
+    public boolean add(byte[] digests, int offset) {
+        checkRange(digests, offset);
+        long hash = hash(digests, offset);
+        int slot = find(digests, offset, hash);
+        if (slot >= 0) return false;
+        if (size + 1 > (long) ((mask + 1L) * MAX_LOAD)) {
+            grow();
+            slot = find(digests, offset, hash);
+        }
+        slot = ~slot;
+        int base = slot * stride;
+        int end = offset + digestLength;
+        for (int i = 0; i < stride; i ++) keys[base + i] = pack(digests, offset + (i << 3), end);
+        used[slot >>> 6] |= 1L << slot;
+        size ++;
+        if (bloom != null) bloomAdd(hash);
+        return true;
+    }
+
+    /**
+     * Validates whether set contains digest.
+     *
+     * @param digest digest of {@link DigestSet#getDigestLength()} bytes
+     * @return whether digest is in set
+     */
+    public boolean contains(byte[] digest) {
+        checkLength(digest);
+        return contains(digest, 0);
+    }
+
+    /**
+     * Validates whether set contains digest at offset of array.
+     *
+     * @param digests array containing digest
+     * @param offset start offset of digest
+     * @return whether digest is in set
+     */
+    public boolean contains(byte[] digests, int offset) {
+        checkRange(digests, offset);
+        long hash = hash(digests, offset);
+        if (bloom != null && !bloomContains(hash)) return false;
+        return find(digests, offset, hash) >= 0;
+    }
+
+    /**
+     * Gets count of digests.
+     * @return size
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets length in bytes of each digest.
+     * @return digest length
+     */
+    public int getDigestLength() {
+        return digestLength;
+    }
+
+    /**
+     * Remove all digests, keeps allocated table.
+     */
+    public void clear() {
+        Arrays.fill(used, 0);
+        if (bloom != null) Arrays.fill(bloom, 0);
+        size = 0;
+    }
+
+    /**
+     * Write set to file, the file is replaced atomically where supported, so a failed save keeps the previous file.
+     *
+     * @param file file to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(Path file) throws IOException {
+        if (file == null) throw new NullPointerException("Unable to save digest set: \nfile cannot be null.");
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putLong(MAGIC).putInt(digestLength).putInt(mask + 1).putLong(size).putLong(used.length).putLong(bloom == null ? 0 : bloom.length);
+                buffer.flip();
+                writeFully(channel, buffer);
+                write(channel, buffer, keys);
+                write(channel, buffer, used);
+                if (bloom != null) write(channel, buffer, bloom);
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Read set written by {@link DigestSet#save(Path)}.
+     *
+     * @param file file to read
+     * @return digest set
+     * @throws IOException if an I/O error occurs or file is not a digest set
+     */
+    public static DigestSet load(Path file) throws IOException {
+        if (file == null) throw new NullPointerException("Unable to load digest set: \nfile cannot be null.");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) throw new IOException("Unable to load digest set: \ninvalid file " + file + ".");
+            ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(HEADER_SIZE);
+            readFully(channel, buffer);
+            buffer.flip();
+            if (buffer.getLong() != MAGIC) throw new IOException("Unable to load digest set: \ninvalid file " + file + ".");
+            int digestLength = buffer.getInt();
+            int slots = buffer.getInt();
+            long size = buffer.getLong();
+            long usedLength = buffer.getLong();
+            long bloomLength = buffer.getLong();
+            int stride = (digestLength + 7) >>> 3;
+            if (digestLength <= 0 || slots <= 0 || Integer.bitCount(slots) != 1 || usedLength != Math.max(1, slots >>> 6)
+                    || (long) slots * stride > Integer.MAX_VALUE || bloomLength < 0 || bloomLength > Integer.MAX_VALUE
+                    || channel.size() != HEADER_SIZE + ((long) slots * stride + usedLength + bloomLength) * 8)
+                throw new IOException("Unable to load digest set: \ncorrupt file " + file + ".");
+            long[] keys = new long[slots * stride];
+            long[] used = new long[(int) usedLength];
+            long[] bloom = bloomLength == 0 ? null : new long[(int) bloomLength];
+            read(channel, buffer, keys);
+            read(channel, buffer, used);
+            if (bloom != null) read(channel, buffer, bloom);
+            return new DigestSet(digestLength, slots, size, keys, used, bloom);
+        }
+    }
+
+    /**
+     * Gets default file of a named digest set under app cache path. Names can be null except setName.
+     * @see PathHelper#buildAppCachePath(String, String, String)
+     *
+     * @param companyName company name
+     * @param appType app type
+     * @param appName app name
+     * @param setName name of digest set
+     * @return file path
+     */
+    public static Path defaultFile(String companyName, String appType, String appName, String setName) {
+        if (setName == null) throw new NullPointerException("Unable to build digest set path: \nsetName cannot be null.");
+        return Paths.get(PathHelper.buildAppCachePath(companyName, appType, appName), setName + ".digests");
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long[] values) throws IOException {
+        int perBuffer = buffer.capacity() >>> 3;
+        for (int offset = 0; offset < values.length; offset += perBuffer) {
+            int count = Math.min(perBuffer, values.length - offset);
+            buffer.clear();
+            buffer.asLongBuffer().put(values, offset, count);
+            buffer.limit(count << 3);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer, long[] values) throws IOException {
+        int perBuffer = buffer.capacity() >>> 3;
+        for (int offset = 0; offset < values.length; offset += perBuffer) {
+            int count = Math.min(perBuffer, values.length - offset);
+            buffer.clear();
+            buffer.limit(count << 3);
+            readFully(channel, buffer);
+            buffer.flip();
+            buffer.asLongBuffer().get(values, offset, count);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("Unable to load digest set: \nunexpected end of file.");
+        }
+    }
+
+    private static int slotsFor(long expectedSize) {
+        long needed = Math.max(64, (long) Math.ceil(expectedSize / MAX_LOAD));
+        long slots = Long.highestOneBit(needed - 1) << 1;
+        if (slots > MAX_SLOTS) throw new IllegalArgumentException("Unable to create digest set: \nexpectedSize too large.");
+        return (int) slots;
+    }
+
+    private void allocate(int slots) {
+        if ((long) slots * stride > Integer.MAX_VALUE - 8) throw new IllegalStateException("Unable to grow digest set: \ntoo many digests.");
+        keys = new long[slots * stride];
+        used = new long[Math.max(1, slots >>> 6)];
+        mask = slots - 1;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldUsed = used;
+        int oldSlots = mask + 1;
+        if (oldSlots >= MAX_SLOTS) throw new IllegalStateException("Unable to grow digest set: \ntoo many digests.");
+        allocate(oldSlots << 1);
+        for (int slot = 0; slot < oldSlots; slot ++) {
+            if ((oldUsed[slot >>> 6] & (1L << slot)) == 0) continue;
+            int oldBase = slot * stride;
+            int target = (int) (mix(oldKeys[oldBase]) & mask);
+            while ((used[target >>> 6] & (1L << target)) != 0) target = (target + 1) & mask;
+            System.arraycopy(oldKeys, oldBase, keys, target * stride, stride);
+            used[target >>> 6] |= 1L << target;
+        }
+    }
+
+    /**
+     * Returns slot of digest if found, otherwise ~slot of the empty slot where it can be inserted.
+     */
+    private int find(byte[] digests, int offset, long hash) {
+        int slot = (int) (hash & mask);
+        while ((used[slot >>> 6] & (1L << slot)) != 0) {
+            if (matches(slot, digests, offset)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return ~slot;
+    }
+
+    private boolean matches(int slot, byte[] digests, int offset) {
+        int base = slot * stride;
+        int end = offset + digestLength;
+        for (int i = 0; i < stride; i ++) {
+            if (keys[base + i] != pack(digests, offset + (i << 3), end)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Pack up to 8 bytes of digest big-endian into a long, bytes past digest end are zero.
+     */
+    private static long pack(byte[] digests, int index, int end) {
+        long value = 0;
+        for (int i = index; i < index + 8; i ++) value = (value << 8) | (i < end ? digests[i] & 0xFFL : 0);
+        return value;
+    }
+
+    private long hash(byte[] digests, int offset) {
+        return mix(pack(digests, offset, offset + digestLength));
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private void bloomAdd(long hash) {
+        int block = bloomBlock(hash);
+        long bits = hash;
+        for (int i = 0; i < BLOOM_HASHES; i ++) {
+            int bit = (int) (bits & 511);
+            bloom[block + (bit >>> 6)] |= 1L << bit;
+            bits = Long.rotateRight(bits, 9);
+        }
+    }
+
+    private boolean bloomContains(long hash) {
+        int block = bloomBlock(hash);
+        long bits = hash;
+        for (int i = 0; i < BLOOM_HASHES; i ++) {
+            int bit = (int) (bits & 511);
+            if ((bloom[block + (bit >>> 6)] & (1L << bit)) == 0) return false;
+            bits = Long.rotateRight(bits, 9);
+        }
+        return true;
+    }
+
+    private int bloomBlock(long hash) {
+        long blocks = bloom.length / BLOOM_BLOCK;
+        return (int) (((mix(hash) >>> 1) % blocks) * BLOOM_BLOCK);
+    }
+
+    private void checkLength(byte[] digest) {
+        if (digest == null) throw new NullPointerException("Unable to use digest: \ndigest cannot be null.");
+        if (digest.length != digestLength) throw new IllegalArgumentException("Unable to use digest: \nlength must be " + digestLength + ".");
+    }
+
+    private void checkRange(byte[] digests, int offset) {
+        if (digests == null) throw new NullPointerException("Unable to use digest: \ndigests cannot be null.");
+        if (offset < 0 || offset > digests.length - digestLength) throw new IndexOutOfBoundsException("Unable to use digest: \noffset out of range.");
+    }
+
+}
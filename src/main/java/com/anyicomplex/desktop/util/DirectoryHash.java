@@ -0,0 +1,282 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Digest of a directory tree, with a manifest of relative path to file digest. Directories are walked and files are hashed in parallel.<br>
+ * The aggregate digest is the hash of the manifest in sha256sum/md5sum format (lower-case hex digest, two spaces, relative path, '\n'),
+ * sorted by relative path with '/' as separator, so it is deterministic across runs and platforms. Like GNU coreutils, a path containing
+ * backslash or newline is written as "\\" and "\n" on a line starting with '\', so every manifest can be parsed back.<br>
+ * Note: Symbolic links and special files are skipped, empty directories do not affect the digest.
+ * @see MessageDigestHelper#hash(String, Path)
+ */
+public final class DirectoryHash {
+
+    private static final byte[] SEPARATOR = {' ', ' '};
+
+    private final String type;
+    private final SortedMap<String, byte[]> manifest;
+    private final byte[] digest;
+
+    private DirectoryHash(String type, SortedMap<String, byte[]> manifest) {
+        this.type = type;
+        this.manifest = manifest;
+        MessageDigest messageDigest = MessageDigestHelper.obtain(type);
+        try {
+            byte[] hex = new byte[MessageDigestHelper.digestLength(type) << 1];
+            for (Map.Entry<String, byte[]> entry : manifest.entrySet()) {
+                byte[] value = entry.getValue();
+                String path = entry.getKey();
+                boolean escaped = needsEscape(path);
+                if (escaped) messageDigest.update((byte) '\\');
+                messageDigest.update(hex, 0, HexCodec.encode(value, 0, value.length, hex, 0, false));
+                messageDigest.update(SEPARATOR);
+                messageDigest.update((escaped ? escape(path) : path).getBytes(StandardCharsets.UTF_8));
+                messageDigest.update((byte) '\n');
+            }
+            this.digest = messageDigest.digest();
+        } finally {
+            MessageDigestHelper.free(messageDigest);
+        }
+    }
+
+    /**
+     * Compute digest of directory tree, with one hashing thread per available processor.
+     * @see DirectoryHash#compute(String, Path, int, HashCache)
+     *
+     * @param type hash type
+     * @param root root directory
+     * @return directory hash
+     * @throws IOException if an I/O error occurs
+     */
+    public static DirectoryHash compute(String type, Path root) throws IOException {
+        return compute(type, root, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Compute digest of directory tree.
+     *
+     * @param type hash type
+     * @param root root directory
+     * @param ioConcurrency max count of files read at the same time, must be positive
+     * @param cache hash cache to skip unchanged files, can be null
+     * @return directory hash
+     * @throws IOException if an I/O error occurs
+     */
+    public static DirectoryHash compute(String type, Path root, int ioConcurrency, HashCache cache) throws IOException {
+        if (type == null) throw new NullPointerException("Unable to hash directory: \ntype cannot be null.");
+        if (root == null) throw new NullPointerException("Unable to hash directory: \nroot cannot be null.");
+        if (ioConcurrency <= 0) throw new IllegalArgumentException("Unable to hash directory: \nioConcurrency must be positive.");
+        if (!Files.isDirectory(root)) throw new IOException("Unable to hash directory: \n" + root + " is not a directory.");
+        Map<String, byte[]> results = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(ioConcurrency);
+        try {
+            pool.invoke(new DirectoryTask(type, root, root, cache, results));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return new DirectoryHash(type, Collections.unmodifiableSortedMap(new TreeMap<>(results)));
+    }
+
+    /**
+     * Gets aggregate digest of directory tree.
+     * @return digest
+     */
+    public byte[] getDigest() {
+        return digest.clone();
+    }
+
+    /**
+     * Gets manifest, relative path with '/' separator to file digest, sorted by path.
+     * @return unmodifiable manifest
+     */
+    public SortedMap<String, byte[]> getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Gets hash type.
+     * @return hash type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Validates whether other directory hash has the same type and digest.
+     *
+     * @param other directory hash to compare
+     * @return whether directory trees match
+     */
+    public boolean matches(DirectoryHash other) {
+        return other != null && type.equals(other.type) && MessageDigest.isEqual(digest, other.digest);
+    }
+
+    /**
+     * Write manifest in sha256sum/md5sum format, which can be checked by those tools from the root directory.
+     *
+     * @param file manifest file to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeManifest(Path file) throws IOException {
+        if (file == null) throw new NullPointerException("Unable to write manifest: \nfile cannot be null.");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeManifest(writer);
+        }
+    }
+
+    /**
+     * Write manifest in sha256sum/md5sum format.
+     *
+     * @param output output to append
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeManifest(Appendable output) throws IOException {
+        if (output == null) throw new NullPointerException("Unable to write manifest: \noutput cannot be null.");
+        for (Map.Entry<String, byte[]> entry : manifest.entrySet()) {
+            String path = entry.getKey();
+            if (needsEscape(path)) output.append('\\').append(HexCodec.encode(entry.getValue())).append("  ").append(escape(path)).append('\n');
+            else output.append(HexCodec.encode(entry.getValue())).append("  ").append(path).append('\n');
+        }
+    }
+
+    private static boolean needsEscape(String path) {
+        return path.indexOf('\\') >= 0 || path.indexOf('\n') >= 0;
+    }
+
+    /**
+     * Escape file name as GNU coreutils does, see ChecksumVerifier#unescape(String).
+     */
+    private static String escape(String path) {
+        StringBuilder builder = new StringBuilder(path.length() + 8);
+        for (int i = 0; i < path.length(); i ++) {
+            char c = path.charAt(i);
+            if (c == '\\') builder.append("\\\\");
+            else if (c == '\n') builder.append("\\n");
+            else builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private static String relativize(Path root, Path file) {
+        Path relative = root.relativize(file);
+        StringBuilder builder = new StringBuilder();
+        for (Path name : relative) {
+            if (builder.length() > 0) builder.append('/');
+            builder.append(name);
+        }
+        return builder.toString();
+    }
+
+    private static final class DirectoryTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+        private final Path root;
+        private final Path directory;
+        private final HashCache cache;
+        private final Map<String, byte[]> results;
+
+        DirectoryTask(String type, Path root, Path directory, HashCache cache, Map<String, byte[]> results) {
+            this.type = type;
+            this.root = root;
+            this.directory = directory;
+            this.cache = cache;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) tasks.add(new DirectoryTask(type, root, child, cache, results).fork());
+                    else if (attributes.isRegularFile()) tasks.add(new FileTask(type, root, child, cache, results).fork());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (ForkJoinTask<?> task : tasks) task.join();
+        }
+
+    }
+
+    private static final class FileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+        private final Path root;
+        private final Path file;
+        private final HashCache cache;
+        private final Map<String, byte[]> results;
+
+        FileTask(String type, Path root, Path file, HashCache cache, Map<String, byte[]> results) {
+            this.type = type;
+            this.root = root;
+            this.file = file;
+            this.cache = cache;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                byte[] digest = cache == null ? MessageDigestHelper.hash(type, file) : cache.hash(type, file);
+                results.put(relativize(root, file), digest);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Duplicate file finder with staged filtering: files are grouped by size first, then candidates are compared by a fast hash of their
+ * first and last few KiB, and only files that still collide are fully hashed. Hashing stages run in parallel with bounded I/O concurrency.<br>
+ * Note: Empty files, symbolic links and special files are ignored. A file reached through several paths (overlapping roots, aliased paths
+ * or hard links) is compared once, under the first path it was reached by, so it is never reported as a duplicate of itself.
+ * @see MessageDigestHelper#hash(String, Path)
+ */
+public final class DuplicateFinder {
+
+    /**
+     * Default count of bytes sampled at each end of file in partial stage, 4 KiB.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 4 * 1024;
+
+    private final String type;
+    private final int sampleSize;
+    private final int ioConcurrency;
+    private volatile List<Path> skipped = Collections.emptyList();
+
+    /**
+     * Create finder with {@link DuplicateFinder#DEFAULT_SAMPLE_SIZE} and one I/O thread per available processor.
+     *
+     * @param type hash type of full-content stage
+     */
+    public DuplicateFinder(String type) {
+        this(type, DEFAULT_SAMPLE_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create finder.
+     *
+     * @param type hash type of full-content stage
+     * @param sampleSize count of bytes sampled at each end of file in partial stage, must be positive
+     * @param ioConcurrency max count of files read at the same time, must be positive
+     */
+    public DuplicateFinder(String type, int sampleSize, int ioConcurrency) {
+        if (type == null) throw new NullPointerException("Unable to create duplicate finder: \ntype cannot be null.");
+        if (sampleSize <= 0) throw new IllegalArgumentException("Unable to create duplicate finder: \nsampleSize must be positive.");
+        if (ioConcurrency <= 0) throw new IllegalArgumentException("Unable to create duplicate finder: \nioConcurrency must be positive.");
+        this.type = type;
+        this.sampleSize = sampleSize;
+        this.ioConcurrency = ioConcurrency;
+    }
+
+    /**
+     * Find duplicate files under given directories. Files and directories that cannot be read are skipped, see {@link DuplicateFinder#getSkipped()}.
+     *
+     * @param roots directories or files to scan
+     * @return groups of files with identical content, each group sorted, groups ordered by their first path
+     * @throws IOException if an I/O error occurs
+     */
+    public List<List<Path>> find(Path... roots) throws IOException {
+        if (roots == null) throw new NullPointerException("Unable to find duplicates: \nroots cannot be null.");
+        Map<Long, List<Path>> bySize = new HashMap<>();
+        Set<Object> seen = new HashSet<>();
+        List<Path> skipped = new ArrayList<>();
+        for (Path root : roots) {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    try {
+                        addCandidate(bySize, seen, file, attributes);
+                    } catch (IOException e) {
+                        skipped.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    skipped.add(file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        this.skipped = Collections.unmodifiableList(skipped);
+        return findBySize(bySize);
+    }
+
+    /**
+     * Find duplicates among given files.
+     *
+     * @param files files to compare
+     * @return groups of files with identical content, each group sorted, groups ordered by their first path
+     * @throws IOException if an I/O error occurs
+     */
+    public List<List<Path>> find(Collection<Path> files) throws IOException {
+        if (files == null) throw new NullPointerException("Unable to find duplicates: \nfiles cannot be null.");
+        Map<Long, List<Path>> bySize = new HashMap<>();
+        Set<Object> seen = new HashSet<>();
+        for (Path file : files) addCandidate(bySize, seen, file, Files.readAttributes(file, BasicFileAttributes.class));
+        this.skipped = Collections.emptyList();
+        return findBySize(bySize);
+    }
+
+    /**
+     * Gets files and directories skipped by last {@link DuplicateFinder#find(Path...)} because they could not be read.
+     * @return unmodifiable list of skipped paths
+     */
+    public List<Path> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Add file unless it is empty, special or already added through another path, identified by file key or real path.
+     */
+    private static void addCandidate(Map<Long, List<Path>> bySize, Set<Object> seen, Path file, BasicFileAttributes attributes) throws IOException {
+        if (!attributes.isRegularFile() || attributes.size() == 0) return;
+        Object identity = attributes.fileKey();
+        if (identity == null) identity = file.toRealPath();
+        if (seen.add(identity)) bySize.computeIfAbsent(attributes.size(), key -> new ArrayList<>()).add(file);
+    }
+
+    private List<List<Path>> findBySize(Map<Long, List<Path>> bySize) throws IOException {
+        List<List<Path>> result = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(ioConcurrency);
+        try {
+            List<Path> partialCandidates = new ArrayList<>();
+            for (List<Path> group : bySize.values()) if (group.size() > 1) partialCandidates.addAll(group);
+            Map<Path, String> partial = hashAll(executor, partialCandidates, true);
+            Map<String, List<Path>> byPartial = group(partialCandidates, partial);
+            List<Path> fullCandidates = new ArrayList<>();
+            for (Map.Entry<String, List<Path>> entry : byPartial.entrySet()) {
+                if (entry.getValue().size() < 2) continue;
+                // partial stage covered whole content of small files
+                if (entry.getKey().startsWith("F")) result.add(entry.getValue());
+                else fullCandidates.addAll(entry.getValue());
+            }
+            Map<Path, String> full = hashAll(executor, fullCandidates, false);
+            for (List<Path> group : group(fullCandidates, full).values()) if (group.size() > 1) result.add(group);
+        } finally {
+            executor.shutdownNow();
+        }
+        for (List<Path> group : result) Collections.sort(group);
+        result.sort((first, second) -> first.get(0).compareTo(second.get(0)));
+        return result;
+    }
+
+    private static Map<String, List<Path>> group(List<Path> files, Map<Path, String> keys) {
+        Map<String, List<Path>> groups = new HashMap<>();
+        for (Path file : files) groups.computeIfAbsent(keys.get(file), key -> new ArrayList<>()).add(file);
+        return groups;
+    }
+
+    private Map<Path, String> hashAll(ExecutorService executor, List<Path> files, boolean partial) throws IOException {
+        List<Future<String>> futures = new ArrayList<>(files.size());
+        for (Path file : files) {
+            Callable<String> task = partial ? () -> partialKey(file) : () -> fullKey(file);
+            futures.add(executor.submit(task));
+        }
+        Map<Path, String> keys = new HashMap<>();
+        try {
+            for (int i = 0; i < files.size(); i ++) keys.put(files.get(i), futures.get(i).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Unable to find duplicates: \ninterrupted.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        return keys;
+    }
+
+    /**
+     * Key of size and xxHash64 of first and last sample, prefixed with "F" if samples covered the whole file.
+     */
+    private String partialKey(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean whole = size <= (long) sampleSize * 2;
+            MessageDigest digest = MessageDigestHelper.obtain(whole ? type : MessageDigestHelper.HashType.XXH64);
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, (long) sampleSize * 2));
+                if (whole) readFully(channel, buffer, 0);
+                else {
+                    buffer.limit(sampleSize);
+                    readFully(channel, buffer, 0);
+                    buffer.limit(sampleSize * 2);
+                    readFully(channel, buffer, size - sampleSize);
+                }
+                buffer.flip();
+                digest.update(buffer);
+                return (whole ? "F" : "P") + size + ':' + HexCodec.encode(digest.digest());
+            } finally {
+                MessageDigestHelper.free(digest);
+            }
+        }
+    }
+
+    private String fullKey(Path file) throws IOException {
+        return HexCodec.encode(MessageDigestHelper.hash(type, file));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read == -1) throw new IOException("Unable to read: \nfile changed while scanning.");
+            position += read;
+        }
+    }
+
+}
@@ -0,0 +1,607 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.lang.reflect.Constructor;
+import java.security.MessageDigest;
+import java.util.zip.Checksum;
+
+/**
+ * Fast non-cryptographic hash functions for cache and partition keys, pure Java and allocation-free.<br>
+ * Note: These hashes are NOT collision-resistant against attackers, never use them for security.<br>
+ * They are also available as {@link MessageDigest} through {@link MessageDigestHelper} with
+ * {@link MessageDigestHelper.HashType#XXH64}, {@link MessageDigestHelper.HashType#MURMUR3_128} and {@link MessageDigestHelper.HashType#CRC32C},
+ * in which case digests are in canonical byte order: big-endian for xxHash64 and CRC32C, two little-endian halves for Murmur3.
+ */
+public final class FastHash {
+
+    private FastHash(){}
+
+    private static final long XXH_PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long XXH_PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long XXH_PRIME3 = 0x165667B19E3779F9L;
+    private static final long XXH_PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long XXH_PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final long MURMUR_C1 = 0x87C37B91114253D5L;
+    private static final long MURMUR_C2 = 0x4CF5AD432745937FL;
+
+    /**
+     * Generate xxHash64 of input data with seed 0.
+     *
+     * @param input the input data
+     * @return xxHash64
+     */
+    public static long xxHash64(byte[] input) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        return xxHash64(input, 0, input.length, 0);
+    }
+
+    /**
+     * Generate xxHash64 of part of input data.
+     *
+     * @param input the input data
+     * @param offset start offset in input
+     * @param length count of bytes to hash
+     * @param seed hash seed
+     * @return xxHash64
+     */
+    public static long xxHash64(byte[] input, int offset, int length, long seed) {
+        int end = offset + length;
+        long hash;
+        if (length >= 32) {
+            long v1 = seed + XXH_PRIME1 + XXH_PRIME2;
+            long v2 = seed + XXH_PRIME2;
+            long v3 = seed;
+            long v4 = seed - XXH_PRIME1;
+            int limit = end - 32;
+            do {
+                v1 = xxhRound(v1, getLongLE(input, offset));
+                v2 = xxhRound(v2, getLongLE(input, offset + 8));
+                v3 = xxhRound(v3, getLongLE(input, offset + 16));
+                v4 = xxhRound(v4, getLongLE(input, offset + 24));
+                offset += 32;
+            } while (offset <= limit);
+            hash = xxhConverge(v1, v2, v3, v4);
+        }
+        else hash = seed + XXH_PRIME5;
+        hash += length;
+        return xxhFinish(hash, input, offset, end);
+    }
+
+    /**
+     * Generate 64-bit Murmur3 hash of input data with seed 0, which is the first half of Murmur3 x64 128-bit hash.
+     *
+     * @param input the input data
+     * @return lower 64 bits of Murmur3 x64 128-bit hash
+     */
+    public static long murmur3_64(byte[] input) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        long[] state = MURMUR_OUT.get();
+        murmur3_128(input, 0, input.length, 0, state);
+        return state[0];
+    }
+
+    /**
+     * Generate Murmur3 x64 128-bit hash of part of input data.
+     *
+     * @param input the input data
+     * @param offset start offset in input
+     * @param length count of bytes to hash
+     * @param seed hash seed, used as unsigned 32-bit
+     * @param out receives the two 64-bit halves, must have room for 2 elements
+     */
+    public static void murmur3_128(byte[] input, int offset, int length, int seed, long[] out) {
+        long h1 = seed & 0xFFFFFFFFL;
+        long h2 = h1;
+        int end = offset + length;
+        int blockEnd = offset + (length & ~15);
+        for (; offset < blockEnd; offset += 16) {
+            h1 = murmurMixH1(h1, h2, getLongLE(input, offset));
+            h2 = murmurMixH2(h1, h2, getLongLE(input, offset + 8));
+        }
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = end - 1; i >= offset; i --) {
+            int shift = ((i - offset) & 7) << 3;
+            if (i - offset >= 8) k2 |= (input[i] & 0xFFL) << shift;
+            else k1 |= (input[i] & 0xFFL) << shift;
+        }
+        murmurFinish(h1, h2, k1, k2, end - offset, length, out);
+    }
+
+    /**
+     * Generate CRC32C of input data, hardware-accelerated on Java 9+ and table-driven on Java 8.
+     *
+     * @param input the input data
+     * @return CRC32C as unsigned 32-bit value
+     */
+    public static long crc32c(byte[] input) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        return crc32c(input, 0, input.length);
+    }
+
+    /**
+     * Generate CRC32C of part of input data.
+     *
+     * @param input the input data
+     * @param offset start offset in input
+     * @param length count of bytes to hash
+     * @return CRC32C as unsigned 32-bit value
+     */
+    public static long crc32c(byte[] input, int offset, int length) {
+        Checksum crc = CRC32C.get();
+        crc.reset();
+        crc.update(input, offset, length);
+        return crc.getValue();
+    }
+
+    /**
+     * Constructor of java.util.zip.CRC32C, which is intrinsified but only available on Java 9+, or null to use {@link Crc32cTable}.
+     */
+    private static final Constructor<? extends Checksum> CRC32C_CONSTRUCTOR = loadCrc32c();
+
+    private static final ThreadLocal<Checksum> CRC32C = ThreadLocal.withInitial(FastHash::newCrc32c);
+
+    private static Constructor<? extends Checksum> loadCrc32c() {
+        try {
+            return Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class).getConstructor();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static Checksum newCrc32c() {
+        if (CRC32C_CONSTRUCTOR != null) {
+            try {
+                return CRC32C_CONSTRUCTOR.newInstance();
+            }
+            catch (ReflectiveOperationException ignored) {
+            }
+        }
+        return new Crc32cTable();
+    }
+
+    /**
+     * Table-driven (slicing-by-8) CRC32C for Java 8.
+     */
+    static final class Crc32cTable implements Checksum {
+
+        private static final int[] TABLE = new int[8 * 256];
+
+        static {
+            for (int i = 0; i < 256; i ++) {
+                int crc = i;
+                for (int bit = 0; bit < 8; bit ++) crc = (crc >>> 1) ^ (0x82F63B78 & -(crc & 1));
+                TABLE[i] = crc;
+            }
+            for (int i = 0; i < 256; i ++) {
+                for (int slice = 1; slice < 8; slice ++) {
+                    int previous = TABLE[(slice - 1) * 256 + i];
+                    TABLE[slice * 256 + i] = (previous >>> 8) ^ TABLE[previous & 0xFF];
+                }
+            }
+        }
+
+        private int crc = 0xFFFFFFFF;
+
+        @Override
+        public void update(int b) {
+            crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            if (b == null) throw new NullPointerException("Unable to update CRC32C: \ninput cannot be null.");
+            if (off < 0 || len < 0 || off > b.length - len) throw new ArrayIndexOutOfBoundsException("Unable to update CRC32C: \ninvalid range.");
+            int crc = this.crc;
+            int end = off + len;
+            for (; off + 8 <= end; off += 8) {
+                crc ^= (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+                crc = TABLE[7 * 256 + (crc & 0xFF)] ^ TABLE[6 * 256 + ((crc >>> 8) & 0xFF)]
+                        ^ TABLE[5 * 256 + ((crc >>> 16) & 0xFF)] ^ TABLE[4 * 256 + (crc >>> 24)]
+                        ^ TABLE[3 * 256 + (b[off + 4] & 0xFF)] ^ TABLE[2 * 256 + (b[off + 5] & 0xFF)]
+                        ^ TABLE[256 + (b[off + 6] & 0xFF)] ^ TABLE[b[off + 7] & 0xFF];
+            }
+            for (; off < end; off ++) crc = (crc >>> 8) ^ TABLE[(crc ^ b[off]) & 0xFF];
+            this.crc = crc;
+        }
+
+        @Override
+        public long getValue() {
+            return ~crc & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public void reset() {
+            crc = 0xFFFFFFFF;
+        }
+
+    }
+
+    private static final ThreadLocal<long[]> MURMUR_OUT = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * Create digest of fast hash type, or null if type is not a fast hash type.
+     */
+    static MessageDigest newDigest(String type) {
+        switch (type) {
+            case "XXH64":
+                return new XXHash64Digest();
+            case "MURMUR3-128":
+                return new Murmur3Digest();
+            case "CRC32C":
+                return new CRC32CDigest();
+            default:
+                return null;
+        }
+    }
+
+    private static long getLongLE(byte[] b, int i) {
+        return (b[i] & 0xFFL)
+                | (b[i + 1] & 0xFFL) << 8
+                | (b[i + 2] & 0xFFL) << 16
+                | (b[i + 3] & 0xFFL) << 24
+                | (b[i + 4] & 0xFFL) << 32
+                | (b[i + 5] & 0xFFL) << 40
+                | (b[i + 6] & 0xFFL) << 48
+                | (b[i + 7] & 0xFFL) << 56;
+    }
+
+    private static long getIntLE(byte[] b, int i) {
+        return (b[i] & 0xFFL)
+                | (b[i + 1] & 0xFFL) << 8
+                | (b[i + 2] & 0xFFL) << 16
+                | (b[i + 3] & 0xFFL) << 24;
+    }
+
+    private static void putLongBE(long value, byte[] b, int i) {
+        for (int shift = 56; shift >= 0; shift -= 8) b[i ++] = (byte) (value >>> shift);
+    }
+
+    private static void putLongLE(long value, byte[] b, int i) {
+        for (int shift = 0; shift < 64; shift += 8) b[i ++] = (byte) (value >>> shift);
+    }
+
+    private static long xxhRound(long acc, long input) {
+        acc += input * XXH_PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * XXH_PRIME1;
+    }
+
+    private static long xxhMerge(long hash, long v) {
+        hash ^= xxhRound(0, v);
+        return hash * XXH_PRIME1 + XXH_PRIME4;
+    }
+
+    private static long xxhConverge(long v1, long v2, long v3, long v4) {
+        long hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        hash = xxhMerge(hash, v1);
+        hash = xxhMerge(hash, v2);
+        hash = xxhMerge(hash, v3);
+        return xxhMerge(hash, v4);
+    }
+
+    private static long xxhFinish(long hash, byte[] input, int offset, int end) {
+        for (; offset + 8 <= end; offset += 8) {
+            hash ^= xxhRound(0, getLongLE(input, offset));
+            hash = Long.rotateLeft(hash, 27) * XXH_PRIME1 + XXH_PRIME4;
+        }
+        if (offset + 4 <= end) {
+            hash ^= getIntLE(input, offset) * XXH_PRIME1;
+            hash = Long.rotateLeft(hash, 23) * XXH_PRIME2 + XXH_PRIME3;
+            offset += 4;
+        }
+        for (; offset < end; offset ++) {
+            hash ^= (input[offset] & 0xFFL) * XXH_PRIME5;
+            hash = Long.rotateLeft(hash, 11) * XXH_PRIME1;
+        }
+        hash ^= hash >>> 33;
+        hash *= XXH_PRIME2;
+        hash ^= hash >>> 29;
+        hash *= XXH_PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long murmurMixH1(long h1, long h2, long k1) {
+        k1 *= MURMUR_C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= MURMUR_C2;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        return h1 * 5 + 0x52DCE729;
+    }
+
+    private static long murmurMixH2(long h1, long h2, long k2) {
+        k2 *= MURMUR_C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= MURMUR_C1;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        return h2 * 5 + 0x38495AB5;
+    }
+
+    private static void murmurFinish(long h1, long h2, long k1, long k2, int tail, long length, long[] out) {
+        if (tail > 8) {
+            k2 *= MURMUR_C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= MURMUR_C1;
+            h2 ^= k2;
+        }
+        if (tail > 0) {
+            k1 *= MURMUR_C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= MURMUR_C2;
+            h1 ^= k1;
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = murmurFmix(h1);
+        h2 = murmurFmix(h2);
+        h1 += h2;
+        h2 += h1;
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    private static long murmurFmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Streaming xxHash64 with seed 0, buffers one 32-byte stripe.
+     */
+    private static final class XXHash64Digest extends MessageDigest implements Cloneable {
+
+        private final byte[] stripe = new byte[32];
+        private int buffered;
+        private long total;
+        private long v1, v2, v3, v4;
+
+        XXHash64Digest() {
+            super("XXH64");
+            engineReset();
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return 8;
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            stripe[buffered ++] = input;
+            total ++;
+            if (buffered == 32) consume(stripe, 0);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length) {
+            total += length;
+            if (buffered > 0) {
+                int count = Math.min(length, 32 - buffered);
+                System.arraycopy(input, offset, stripe, buffered, count);
+                buffered += count;
+                offset += count;
+                length -= count;
+                if (buffered < 32) return;
+                consume(stripe, 0);
+            }
+            int end = offset + length;
+            for (; offset + 32 <= end; offset += 32) consume(input, offset);
+            buffered = end - offset;
+            System.arraycopy(input, offset, stripe, 0, buffered);
+        }
+
+        private void consume(byte[] input, int offset) {
+            v1 = xxhRound(v1, getLongLE(input, offset));
+            v2 = xxhRound(v2, getLongLE(input, offset + 8));
+            v3 = xxhRound(v3, getLongLE(input, offset + 16));
+            v4 = xxhRound(v4, getLongLE(input, offset + 24));
+            buffered = 0;
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            long hash = total >= 32 ? xxhConverge(v1, v2, v3, v4) : XXH_PRIME5;
+            hash += total;
+            hash = xxhFinish(hash, stripe, 0, buffered);
+            byte[] result = new byte[8];
+            putLongBE(hash, result, 0);
+            engineReset();
+            return result;
+        }
+
+        @Override
+        protected void engineReset() {
+            v1 = XXH_PRIME1 + XXH_PRIME2;
+            v2 = XXH_PRIME2;
+            v3 = 0;
+            v4 = -XXH_PRIME1;
+            buffered = 0;
+            total = 0;
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            XXHash64Digest copy = new XXHash64Digest();
+            System.arraycopy(stripe, 0, copy.stripe, 0, buffered);
+            copy.buffered = buffered;
+            copy.total = total;
+            copy.v1 = v1;
+            copy.v2 = v2;
+            copy.v3 = v3;
+            copy.v4 = v4;
+            return copy;
+        }
+
+    }
+
+    /**
+     * Streaming Murmur3 x64 128-bit hash with seed 0, buffers one 16-byte block.
+     */
+    private static final class Murmur3Digest extends MessageDigest implements Cloneable {
+
+        private final byte[] block = new byte[16];
+        private int buffered;
+        private long total;
+        private long h1, h2;
+
+        Murmur3Digest() {
+            super("MURMUR3-128");
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return 16;
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            block[buffered ++] = input;
+            total ++;
+            if (buffered == 16) consume(block, 0);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length) {
+            total += length;
+            if (buffered > 0) {
+                int count = Math.min(length, 16 - buffered);
+                System.arraycopy(input, offset, block, buffered, count);
+                buffered += count;
+                offset += count;
+                length -= count;
+                if (buffered < 16) return;
+                consume(block, 0);
+            }
+            int end = offset + length;
+            for (; offset + 16 <= end; offset += 16) consume(input, offset);
+            buffered = end - offset;
+            System.arraycopy(input, offset, block, 0, buffered);
+        }
+
+        private void consume(byte[] input, int offset) {
+            h1 = murmurMixH1(h1, h2, getLongLE(input, offset));
+            h2 = murmurMixH2(h1, h2, getLongLE(input, offset + 8));
+            buffered = 0;
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = buffered - 1; i >= 0; i --) {
+                if (i >= 8) k2 |= (block[i] & 0xFFL) << ((i - 8) << 3);
+                else k1 |= (block[i] & 0xFFL) << (i << 3);
+            }
+            long[] out = MURMUR_OUT.get();
+            murmurFinish(h1, h2, k1, k2, buffered, total, out);
+            byte[] result = new byte[16];
+            putLongLE(out[0], result, 0);
+            putLongLE(out[1], result, 8);
+            engineReset();
+            return result;
+        }
+
+        @Override
+        protected void engineReset() {
+            h1 = 0;
+            h2 = 0;
+            buffered = 0;
+            total = 0;
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            Murmur3Digest copy = new Murmur3Digest();
+            System.arraycopy(block, 0, copy.block, 0, buffered);
+            copy.buffered = buffered;
+            copy.total = total;
+            copy.h1 = h1;
+            copy.h2 = h2;
+            return copy;
+        }
+
+    }
+
+    /**
+     * CRC32C as a 4-byte big-endian digest.
+     */
+    private static final class CRC32CDigest extends MessageDigest implements Cloneable {
+
+        private final Checksum crc = newCrc32c();
+
+        CRC32CDigest() {
+            super("CRC32C");
+        }
+
+        @Override
+        protected int engineGetDigestLength() {
+            return 4;
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            crc.update(input);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length) {
+            crc.update(input, offset, length);
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            int value = (int) crc.getValue();
+            engineReset();
+            return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+
+        @Override
+        protected void engineReset() {
+            crc.reset();
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            throw new CloneNotSupportedException("Unable to clone CRC32C digest: \nCRC32C state cannot be copied.");
+        }
+
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent cache of file hashes keyed by file identity (path, size, modified time and file key), so that unchanged files
+ * are not read again. The index is a compact binary file, by default under {@link PathHelper#buildAppCachePath(String, String, String)}.<br>
+ * Note: Files modified within {@link HashCache#RACY_WINDOW_MILLIS} before hashing are hashed but not cached,
+ * because a later write in the same timestamp granularity would be invisible to the metadata check.<br>
+ * Note: Changes are kept in memory until {@link HashCache#save()} is called.
+ * @see MessageDigestHelper#hash(String, Path)
+ */
+public final class HashCache {
+
+    /**
+     * Default index file name.
+     */
+    public static final String INDEX_FILE_NAME = "hash-cache.idx";
+
+    /**
+     * Files modified more recently than this are not cached.
+     */
+    public static final long RACY_WINDOW_MILLIS = 2000;
+
+    private static final int MAGIC = 0x48434931;
+
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    /**
+     * Create a hash cache with index file under app cache path. All of names can be null.
+     * @see PathHelper#buildAppCachePath(String, String, String)
+     *
+     * @param companyName company name
+     * @param appType app type
+     * @param appName app name
+     */
+    public HashCache(String companyName, String appType, String appName) {
+        this(Paths.get(PathHelper.buildAppCachePath(companyName, appType, appName), INDEX_FILE_NAME));
+    }
+
+    /**
+     * Create a hash cache with given index file, existing entries will be loaded. A corrupt index is discarded.
+     *
+     * @param indexFile index file
+     */
+    public HashCache(Path indexFile) {
+        if (indexFile == null) throw new NullPointerException("Unable to create hash cache: \nindexFile cannot be null.");
+        this.indexFile = indexFile;
+        try {
+            load();
+        } catch (IOException e) {
+            entries.clear();
+            System.err.println("Unable to load hash cache: \n" + e);
+        }
+    }
+
+    /**
+     * Gets hash of file, from cache if file metadata is unchanged, otherwise the file is hashed and result is cached.
+     *
+     * @param type hash type
+     * @param path the file
+     * @return hash
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] hash(String type, Path path) throws IOException {
+        if (type == null) throw new NullPointerException("Unable to hash: \ntype cannot be null.");
+        if (path == null) throw new NullPointerException("Unable to hash: \npath cannot be null.");
+        path = path.toAbsolutePath().normalize();
+        String key = key(type, path);
+        BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.matches(before)) return entry.digest.clone();
+        long start = System.currentTimeMillis();
+        byte[] digest = MessageDigestHelper.hash(type, path);
+        BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+        Entry fresh = new Entry(after, digest);
+        if (fresh.matches(before) && fresh.modified < TimeUnit.MILLISECONDS.toNanos(start - RACY_WINDOW_MILLIS)) {
+            entries.put(key, fresh);
+            dirty = true;
+        }
+        else if (entries.remove(key) != null) dirty = true;
+        return digest.clone();
+    }
+
+    /**
+     * Gets cached hash of file without reading file content.
+     *
+     * @param type hash type
+     * @param path the file
+     * @return cached hash, or null if not cached or file changed
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] get(String type, Path path) throws IOException {
+        if (type == null) throw new NullPointerException("Unable to get hash: \ntype cannot be null.");
+        if (path == null) throw new NullPointerException("Unable to get hash: \npath cannot be null.");
+        path = path.toAbsolutePath().normalize();
+        Entry entry = entries.get(key(type, path));
+        if (entry == null) return null;
+        try {
+            if (entry.matches(Files.readAttributes(path, BasicFileAttributes.class))) return entry.digest.clone();
+        } catch (NoSuchFileException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Remove cached hashes of all types of file.
+     *
+     * @param path the file
+     */
+    public void invalidate(Path path) {
+        if (path == null) throw new NullPointerException("Unable to invalidate: \npath cannot be null.");
+        String prefix = path.toAbsolutePath().normalize().toString() + '\0';
+        if (entries.keySet().removeIf(key -> key.startsWith(prefix))) dirty = true;
+    }
+
+    /**
+     * Remove all cached hashes.
+     */
+    public void clear() {
+        if (!entries.isEmpty()) dirty = true;
+        entries.clear();
+    }
+
+    /**
+     * Gets count of cached hashes.
+     * @return cached hash count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets index file.
+     * @return index file
+     */
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Write index file if there are unsaved changes. The file is replaced atomically where supported.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        dirty = false;
+        Path parent = indexFile.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, INDEX_FILE_NAME, ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                output.writeInt(MAGIC);
+                List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+                output.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> item : snapshot) {
+                    Entry entry = item.getValue();
+                    output.writeUTF(item.getKey());
+                    output.writeLong(entry.size);
+                    output.writeLong(entry.modified);
+                    output.writeUTF(entry.fileKey);
+                    output.writeShort(entry.digest.length);
+                    output.write(entry.digest);
+                }
+            }
+            try {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.isRegularFile(indexFile)) return;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (input.readInt() != MAGIC) throw new IOException("Invalid index file " + indexFile + ".");
+            int count = input.readInt();
+            for (int i = 0; i < count; i ++) {
+                String key = input.readUTF();
+                long size = input.readLong();
+                long modified = input.readLong();
+                String fileKey = input.readUTF();
+                byte[] digest = new byte[input.readUnsignedShort()];
+                input.readFully(digest);
+                entries.put(key, new Entry(size, modified, fileKey, digest));
+            }
+        }
+    }
+
+    private static String key(String type, Path path) {
+        return path.toString() + '\0' + type;
+    }
+
+    private static final class Entry {
+
+        final long size;
+        final long modified;
+        final String fileKey;
+        final byte[] digest;
+
+        Entry(long size, long modified, String fileKey, byte[] digest) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.digest = digest;
+        }
+
+        Entry(BasicFileAttributes attributes, byte[] digest) {
+            this(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKey(attributes), digest);
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size()
+                    && modified == attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(fileKey(attributes));
+        }
+
+        private static String fileKey(BasicFileAttributes attributes) {
+            return Objects.toString(attributes.fileKey(), "");
+        }
+
+    }
+
+}
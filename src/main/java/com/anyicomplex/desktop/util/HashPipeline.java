@@ -0,0 +1,329 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-ahead hashing pipeline for slow streams, e.g. network-mounted files or decompressing streams.
+ * A reader thread fills free buffers while the calling thread digests filled ones, so reading and hashing overlap.<br>
+ * Note: Each call starts a dedicated daemon reader thread, so it never waits for a busy or caller-runs executor.
+ * Counters accumulate across calls until {@link HashPipeline#resetCounters()}.
+ * @see MessageDigestHelper#hash(String, InputStream)
+ */
+public final class HashPipeline {
+
+    /**
+     * Default buffer size, 1 MiB.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Default count of buffers, double buffering.
+     */
+    public static final int DEFAULT_DEPTH = 2;
+
+    private final int bufferSize;
+    private final int depth;
+
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder digestNanos = new LongAdder();
+    private final LongAdder digestWaitNanos = new LongAdder();
+
+    /**
+     * Create pipeline with {@link HashPipeline#DEFAULT_BUFFER_SIZE} and {@link HashPipeline#DEFAULT_DEPTH}.
+     */
+    public HashPipeline() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Create pipeline.
+     *
+     * @param bufferSize size of each buffer in bytes, must be positive
+     * @param depth count of buffers, at least 2
+     */
+    public HashPipeline(int bufferSize, int depth) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("Unable to create pipeline: \nbufferSize must be positive.");
+        if (depth < 2) throw new IllegalArgumentException("Unable to create pipeline: \ndepth must be at least 2.");
+        this.bufferSize = bufferSize;
+        this.depth = depth;
+    }
+
+    /**
+     * Generate hash of file content through pipeline.
+     *
+     * @param type hash type
+     * @param path the input file
+     * @return hash
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] hash(String type, Path path) throws IOException {
+        if (path == null) throw new NullPointerException("Unable to hash: \npath cannot be null.");
+        try (InputStream input = Files.newInputStream(path)) {
+            return hash(type, input);
+        }
+    }
+
+    /**
+     * Generate hash of all remaining data of input stream through pipeline. The stream will not be closed.
+     *
+     * @param type hash type
+     * @param input the input stream
+     * @return hash
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] hash(String type, InputStream input) throws IOException {
+        MessageDigest digest = MessageDigestHelper.obtain(type);
+        try {
+            update(digest, input);
+            return digest.digest();
+        } finally {
+            MessageDigestHelper.free(digest);
+        }
+    }
+
+    /**
+     * Update digest with all remaining data of input stream through pipeline. The stream will not be closed.<br>
+     * Note: The method returns only after the reader stopped, the stream is never read after return. If digesting fails or the caller
+     * is interrupted, the reader thread is interrupted, but a read that ignores interrupts (e.g. a blocking socket read) still delays
+     * return until it completes. Interruptible channel streams are closed by the interrupt.
+     *
+     * @param digest the digest to update
+     * @param input the input stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void update(MessageDigest digest, InputStream input) throws IOException {
+        if (digest == null) throw new NullPointerException("Unable to hash: \ndigest cannot be null.");
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        long start = System.nanoTime();
+        Reader reader = new Reader(input);
+        reader.thread.start();
+        boolean completed = false;
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                Chunk chunk = reader.filled.take();
+                long digestStart = System.nanoTime();
+                digestWaitNanos.add(digestStart - waitStart);
+                if (chunk.length < 0) break;
+                digest.update(chunk.data, 0, chunk.length);
+                digestNanos.add(System.nanoTime() - digestStart);
+                bytes.add(chunk.length);
+                reader.free.put(chunk);
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Unable to hash: \ninterrupted.");
+        } finally {
+            reader.stop(!completed);
+            elapsedNanos.add(System.nanoTime() - start);
+        }
+        if (reader.error != null) {
+            if (reader.error instanceof IOException) throw (IOException) reader.error;
+            if (reader.error instanceof RuntimeException) throw (RuntimeException) reader.error;
+            throw new IOException(reader.error);
+        }
+    }
+
+    /**
+     * Gets count of hashed bytes.
+     * @return hashed bytes
+     */
+    public long getBytesHashed() {
+        return bytes.sum();
+    }
+
+    /**
+     * Gets throughput over wall-clock time of all calls.
+     * @return bytes per second
+     */
+    public double getThroughput() {
+        long elapsed = elapsedNanos.sum();
+        return elapsed == 0 ? 0 : bytes.sum() * 1e9 / elapsed;
+    }
+
+    /**
+     * Gets time spent by reader in reading from stream.
+     * @return read time in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos.sum();
+    }
+
+    /**
+     * Gets time spent in updating digest.
+     * @return digest time in nanoseconds
+     */
+    public long getDigestNanos() {
+        return digestNanos.sum();
+    }
+
+    /**
+     * Gets time the digest waited for filled buffers, high values mean hashing is I/O-bound.
+     * @return wait time in nanoseconds
+     */
+    public long getDigestWaitNanos() {
+        return digestWaitNanos.sum();
+    }
+
+    /**
+     * Gets total wall-clock time of all calls.
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos.sum();
+    }
+
+    /**
+     * Reset all counters to zero.
+     */
+    public void resetCounters() {
+        bytes.reset();
+        elapsedNanos.reset();
+        readNanos.reset();
+        digestNanos.reset();
+        digestWaitNanos.reset();
+    }
+
+    /**
+     * Gets size of each buffer.
+     * @return buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Gets count of buffers.
+     * @return depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    private static final class Chunk {
+
+        final byte[] data;
+        int length;
+
+        Chunk(byte[] data) {
+            this.data = data;
+        }
+
+    }
+
+    private final class Reader implements Runnable {
+
+        final InputStream input;
+        final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(depth);
+        final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(depth + 1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread thread;
+        volatile boolean stopped = false;
+        volatile Throwable error;
+
+        Reader(InputStream input) {
+            this.input = input;
+            for (int i = 0; i < depth; i ++) free.add(new Chunk(new byte[bufferSize]));
+            thread = new Thread(this, "HashPipeline-Reader");
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    Chunk chunk = free.take();
+                    if (stopped) break;
+                    long readStart = System.nanoTime();
+                    int length = fill(chunk.data);
+                    readNanos.add(System.nanoTime() - readStart);
+                    if (length > 0) {
+                        chunk.length = length;
+                        filled.put(chunk);
+                    }
+                    if (length < chunk.data.length) break;
+                }
+            } catch (InterruptedException e) {
+                // Reader interrupted by others, the stream is incomplete
+                if (!stopped) error = new InterruptedIOException("Unable to read: \ninterrupted.");
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                Chunk end = new Chunk(null);
+                end.length = -1;
+                filled.offer(end);
+                done.countDown();
+            }
+        }
+
+        private int fill(byte[] buffer) throws IOException {
+            int total = 0;
+            while (total < buffer.length && !stopped) {
+                int read = input.read(buffer, total, buffer.length - total);
+                if (read == -1) break;
+                total += read;
+            }
+            return total;
+        }
+
+        /**
+         * Stop reader and wait until it no longer touches the stream.
+         *
+         * @param abort whether to interrupt a read in progress, the remaining data is no longer needed
+         */
+        void stop(boolean abort) {
+            stopped = true;
+            free.offer(new Chunk(null));
+            if (abort) thread.interrupt();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+    }
+
+}
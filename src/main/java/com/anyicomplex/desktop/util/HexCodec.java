@@ -0,0 +1,335 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Simple table-driven hex encoder and decoder, can write into caller-supplied buffers without allocation.<br>
+ * Note: When built with "-PvectorHex" and the JVM runs with "--add-modules jdk.incubator.vector", bulk byte[] encoding and decoding use SIMD instructions,
+ * see {@link HexCodec#isVectorized()}. Set system property "{@value HexCodec#SCALAR_PROPERTY}" to true to force scalar code.
+ * @see MessageDigestHelper
+ */
+public final class HexCodec {
+
+    private HexCodec(){}
+
+    private static final byte[] LOWER = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPPER = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Two ASCII digits of every byte value, high digit first.
+     */
+    private static final byte[] LOWER_PAIRS = new byte[512];
+    private static final byte[] UPPER_PAIRS = new byte[512];
+
+    /**
+     * Nibble value of every ASCII char, -1 if not a hex digit.
+     */
+    private static final byte[] NIBBLES = new byte[128];
+
+    /**
+     * System property that disables SIMD code when set to true.
+     */
+    public static final String SCALAR_PROPERTY = "com.anyicomplex.desktop.util.HexCodec.scalar";
+
+    /**
+     * Bulk operations on whole vectors, the scalar code finishes what a kernel leaves.
+     */
+    interface Kernel {
+
+        /**
+         * @return count of src bytes encoded
+         */
+        int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset, boolean upperCase);
+
+        /**
+         * @return count of hex digits decoded, stops before a vector containing invalid digits
+         */
+        int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset);
+
+        /**
+         * @return OR of XOR of every byte pair in range, 0 if ranges are equal
+         */
+        int difference(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+    }
+
+    private static final Kernel KERNEL = loadKernel();
+
+    private static Kernel loadKernel() {
+        if (Boolean.getBoolean(SCALAR_PROPERTY)) return null;
+        try {
+            // Only loadable when the JVM runs with the incubator module
+            Class.forName("jdk.incubator.vector.ByteVector");
+            return (Kernel) Class.forName(HexCodec.class.getName() + "Vector").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets whether SIMD code is used, chosen once at class initialization.
+     * @return whether vectorized
+     */
+    public static boolean isVectorized() {
+        return KERNEL != null;
+    }
+
+    static {
+        for (int i = 0; i < 256; i ++) {
+            LOWER_PAIRS[i << 1] = LOWER[i >>> 4];
+            LOWER_PAIRS[(i << 1) + 1] = LOWER[i & 0xF];
+            UPPER_PAIRS[i << 1] = UPPER[i >>> 4];
+            UPPER_PAIRS[(i << 1) + 1] = UPPER[i & 0xF];
+        }
+        Arrays.fill(NIBBLES, (byte) -1);
+        for (int i = 0; i < 16; i ++) {
+            NIBBLES[LOWER[i]] = (byte) i;
+            NIBBLES[UPPER[i]] = (byte) i;
+        }
+    }
+
+    /**
+     * Encode bytes to lower-case hex string.
+     *
+     * @param input bytes to encode
+     * @return hex string
+     */
+    public static String encode(byte[] input) {
+        return encode(input, false);
+    }
+
+    /**
+     * Encode bytes to hex string.
+     *
+     * @param input bytes to encode
+     * @param upperCase whether to use upper-case digits
+     * @return hex string
+     */
+    public static String encode(byte[] input, boolean upperCase) {
+        if (input == null) throw new NullPointerException("Unable to encode hex: \ninput cannot be null.");
+        byte[] ascii = new byte[input.length << 1];
+        encode(input, 0, input.length, ascii, 0, upperCase);
+        return new String(ascii, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encode bytes as hex digits into char array.
+     *
+     * @param src bytes to encode
+     * @param offset start offset in src
+     * @param length count of bytes to encode
+     * @param dst destination, must have room for length * 2 chars
+     * @param dstOffset start offset in dst
+     * @param upperCase whether to use upper-case digits
+     * @return count of chars written
+     */
+    public static int encode(byte[] src, int offset, int length, char[] dst, int dstOffset, boolean upperCase) {
+        checkRange(src.length, offset, length);
+        checkRange(dst.length, dstOffset, length << 1);
+        byte[] pairs = upperCase ? UPPER_PAIRS : LOWER_PAIRS;
+        for (int i = offset, end = offset + length; i < end; i ++) {
+            int index = (src[i] & 0xFF) << 1;
+            dst[dstOffset ++] = (char) pairs[index];
+            dst[dstOffset ++] = (char) pairs[index + 1];
+        }
+        return length << 1;
+    }
+
+    /**
+     * Encode bytes as ASCII hex digits into byte array.
+     *
+     * @param src bytes to encode
+     * @param offset start offset in src
+     * @param length count of bytes to encode
+     * @param dst destination, must have room for length * 2 bytes
+     * @param dstOffset start offset in dst
+     * @param upperCase whether to use upper-case digits
+     * @return count of bytes written
+     */
+    public static int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset, boolean upperCase) {
+        checkRange(src.length, offset, length);
+        checkRange(dst.length, dstOffset, length << 1);
+        byte[] pairs = upperCase ? UPPER_PAIRS : LOWER_PAIRS;
+        int start = offset;
+        if (KERNEL != null) {
+            int done = KERNEL.encode(src, offset, length, dst, dstOffset, upperCase);
+            start += done;
+            dstOffset += done << 1;
+        }
+        for (int i = start, end = offset + length; i < end; i ++) {
+            int index = (src[i] & 0xFF) << 1;
+            dst[dstOffset ++] = pairs[index];
+            dst[dstOffset ++] = pairs[index + 1];
+        }
+        return length << 1;
+    }
+
+    /**
+     * Encode bytes as ASCII hex digits into buffer at its position, position will be advanced.
+     *
+     * @param src bytes to encode
+     * @param offset start offset in src
+     * @param length count of bytes to encode
+     * @param dst destination, must have room for length * 2 bytes
+     * @param upperCase whether to use upper-case digits
+     * @throws BufferOverflowException if dst has less than length * 2 bytes remaining, nothing is written then
+     */
+    public static void encode(byte[] src, int offset, int length, ByteBuffer dst, boolean upperCase) {
+        checkRange(src.length, offset, length);
+        if (dst.remaining() < length << 1) throw new BufferOverflowException();
+        if (dst.hasArray()) {
+            int position = dst.position();
+            encode(src, offset, length, dst.array(), dst.arrayOffset() + position, upperCase);
+            dst.position(position + (length << 1));
+            return;
+        }
+        byte[] pairs = upperCase ? UPPER_PAIRS : LOWER_PAIRS;
+        for (int i = offset, end = offset + length; i < end; i ++) {
+            int index = (src[i] & 0xFF) << 1;
+            dst.put(pairs[index]);
+            dst.put(pairs[index + 1]);
+        }
+    }
+
+    /**
+     * Decode hex string to bytes, digits can be in either case.
+     *
+     * @param hex hex string of even length
+     * @return decoded bytes
+     */
+    public static byte[] decode(CharSequence hex) {
+        if (hex == null) throw new NullPointerException("Unable to decode hex: \nhex cannot be null.");
+        byte[] result = new byte[hex.length() >> 1];
+        decode(hex, result, 0);
+        return result;
+    }
+
+    /**
+     * Decode hex string into byte array.
+     *
+     * @param hex hex string of even length
+     * @param dst destination, must have room for hex.length() / 2 bytes
+     * @param dstOffset start offset in dst
+     * @return count of bytes written
+     */
+    public static int decode(CharSequence hex, byte[] dst, int dstOffset) {
+        int length = hex.length();
+        if ((length & 1) != 0) throw new IllegalArgumentException("Unable to decode hex: \nlength must be even.");
+        checkRange(dst.length, dstOffset, length >> 1);
+        if (KERNEL != null && length >= VECTOR_DECODE_THRESHOLD && hex instanceof String) {
+            byte[] ascii = ((String) hex).getBytes(StandardCharsets.ISO_8859_1);
+            return decode(ascii, 0, ascii.length, dst, dstOffset);
+        }
+        for (int i = 0; i < length; i += 2) {
+            dst[dstOffset ++] = (byte) ((nibble(hex.charAt(i), i) << 4) | nibble(hex.charAt(i + 1), i + 1));
+        }
+        return length >> 1;
+    }
+
+    /**
+     * Decode hex string into buffer at its position, position will be advanced.
+     *
+     * @param hex hex string of even length
+     * @param dst destination, must have room for hex.length() / 2 bytes
+     * @return count of bytes written
+     * @throws BufferOverflowException if dst has less than hex.length() / 2 bytes remaining, nothing is written then
+     */
+    public static int decode(CharSequence hex, ByteBuffer dst) {
+        int length = hex.length();
+        if ((length & 1) != 0) throw new IllegalArgumentException("Unable to decode hex: \nlength must be even.");
+        if (dst.remaining() < length >> 1) throw new BufferOverflowException();
+        if (dst.hasArray()) {
+            int position = dst.position();
+            decode(hex, dst.array(), dst.arrayOffset() + position);
+            dst.position(position + (length >> 1));
+            return length >> 1;
+        }
+        for (int i = 0; i < length; i += 2) {
+            dst.put((byte) ((nibble(hex.charAt(i), i) << 4) | nibble(hex.charAt(i + 1), i + 1)));
+        }
+        return length >> 1;
+    }
+
+    /**
+     * Decode ASCII hex digits into byte array.
+     *
+     * @param src ASCII hex digits
+     * @param offset start offset in src
+     * @param length count of digits, must be even
+     * @param dst destination, must have room for length / 2 bytes
+     * @param dstOffset start offset in dst
+     * @return count of bytes written
+     */
+    public static int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        if ((length & 1) != 0) throw new IllegalArgumentException("Unable to decode hex: \nlength must be even.");
+        checkRange(src.length, offset, length);
+        checkRange(dst.length, dstOffset, length >> 1);
+        int start = offset;
+        if (KERNEL != null) {
+            int done = KERNEL.decode(src, offset, length, dst, dstOffset);
+            start += done;
+            dstOffset += done >> 1;
+        }
+        for (int i = start, end = offset + length; i < end; i += 2) {
+            dst[dstOffset ++] = (byte) ((nibble((char) (src[i] & 0xFF), i) << 4) | nibble((char) (src[i + 1] & 0xFF), i + 1));
+        }
+        return length >> 1;
+    }
+
+    /**
+     * Strings shorter than this are decoded by scalar code, copying their chars to ASCII bytes costs more than SIMD saves.
+     */
+    private static final int VECTOR_DECODE_THRESHOLD = 256;
+
+    /**
+     * Compare two byte ranges in time independent of where they differ.
+     */
+    static boolean isEqual(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        checkRange(a.length, aOffset, length);
+        checkRange(b.length, bOffset, length);
+        if (KERNEL != null) return KERNEL.difference(a, aOffset, b, bOffset, length) == 0;
+        int result = 0;
+        for (int i = 0; i < length; i ++) result |= a[aOffset + i] ^ b[bOffset + i];
+        return result == 0;
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length)
+            throw new IndexOutOfBoundsException("Unable to access array: \nrange out of bounds.");
+    }
+
+    private static int nibble(char c, int index) {
+        int value = c < 128 ? NIBBLES[c] : -1;
+        if (value < 0) throw new IllegalArgumentException("Unable to decode hex: \ninvalid char at index " + index + ".");
+        return value;
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel of {@link HexCodec} on the incubating Vector API, loaded reflectively only when module jdk.incubator.vector is present.<br>
+ * Note: Each method processes whole vectors only and returns how much it processed, the caller finishes the tail with scalar code.
+ */
+final class HexCodecVector implements HexCodec.Kernel {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    /**
+     * Interleave shuffles: lane 2k takes lane k of first vector, lane 2k + 1 takes lane k of second vector (negative index),
+     * for lower and upper half of source lanes.
+     */
+    private static final VectorShuffle<Byte> ZIP_LOW;
+    private static final VectorShuffle<Byte> ZIP_HIGH;
+
+    /**
+     * De-interleave shuffles: lane k takes even (or odd) lane 2k of the concatenation of two vectors.
+     */
+    private static final VectorShuffle<Byte> UNZIP_EVEN;
+    private static final VectorShuffle<Byte> UNZIP_ODD;
+
+    static {
+        int[] zipLow = new int[LANES];
+        int[] zipHigh = new int[LANES];
+        int[] unzipEven = new int[LANES];
+        int[] unzipOdd = new int[LANES];
+        for (int i = 0; i < LANES; i ++) {
+            int source = i >> 1;
+            zipLow[i] = (i & 1) == 0 ? source : source - LANES;
+            zipHigh[i] = (i & 1) == 0 ? source + LANES / 2 : source + LANES / 2 - LANES;
+            int even = i << 1;
+            unzipEven[i] = even < LANES ? even : even - 2 * LANES;
+            unzipOdd[i] = even + 1 < LANES ? even + 1 : even + 1 - 2 * LANES;
+        }
+        ZIP_LOW = VectorShuffle.fromArray(SPECIES, zipLow, 0);
+        ZIP_HIGH = VectorShuffle.fromArray(SPECIES, zipHigh, 0);
+        UNZIP_EVEN = VectorShuffle.fromArray(SPECIES, unzipEven, 0);
+        UNZIP_ODD = VectorShuffle.fromArray(SPECIES, unzipOdd, 0);
+    }
+
+    @Override
+    public int encode(byte[] src, int offset, int length, byte[] dst, int dstOffset, boolean upperCase) {
+        byte letterOffset = (byte) (upperCase ? 'A' - '0' - 10 : 'a' - '0' - 10);
+        int bound = SPECIES.loopBound(length);
+        for (int i = 0; i < bound; i += LANES) {
+            ByteVector input = ByteVector.fromArray(SPECIES, src, offset + i);
+            ByteVector high = digits(input.lanewise(VectorOperators.LSHR, 4).and((byte) 0x0F), letterOffset);
+            ByteVector low = digits(input.and((byte) 0x0F), letterOffset);
+            int target = dstOffset + (i << 1);
+            high.rearrange(ZIP_LOW, low).intoArray(dst, target);
+            high.rearrange(ZIP_HIGH, low).intoArray(dst, target + LANES);
+        }
+        return bound;
+    }
+
+    private static ByteVector digits(ByteVector nibbles, byte letterOffset) {
+        VectorMask<Byte> letters = nibbles.compare(VectorOperators.GT, (byte) 9);
+        return nibbles.add((byte) '0').add(ByteVector.broadcast(SPECIES, letterOffset), letters);
+    }
+
+    @Override
+    public int decode(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int processed = 0;
+        int step = LANES << 1;
+        for (; processed + step <= length; processed += step) {
+            ByteVector first = ByteVector.fromArray(SPECIES, src, offset + processed);
+            ByteVector second = ByteVector.fromArray(SPECIES, src, offset + processed + LANES);
+            ByteVector firstNibbles = nibbles(first);
+            ByteVector secondNibbles = nibbles(second);
+            if (firstNibbles == null || secondNibbles == null) break;
+            ByteVector high = firstNibbles.rearrange(UNZIP_EVEN, secondNibbles);
+            ByteVector low = firstNibbles.rearrange(UNZIP_ODD, secondNibbles);
+            high.lanewise(VectorOperators.LSHL, 4).or(low).intoArray(dst, dstOffset + (processed >> 1));
+        }
+        return processed;
+    }
+
+    /**
+     * Convert ASCII hex digits to nibbles, or null if any lane is not a hex digit.
+     */
+    private static ByteVector nibbles(ByteVector chars) {
+        ByteVector lower = chars.or((byte) 0x20);
+        VectorMask<Byte> digits = chars.compare(VectorOperators.GE, (byte) '0').and(chars.compare(VectorOperators.LE, (byte) '9'));
+        VectorMask<Byte> letters = lower.compare(VectorOperators.GE, (byte) 'a').and(lower.compare(VectorOperators.LE, (byte) 'f'));
+        if (!digits.or(letters).allTrue()) return null;
+        return chars.sub((byte) '0').blend(lower.sub((byte) ('a' - 10)), letters);
+    }
+
+    @Override
+    public int difference(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        ByteVector accumulator = ByteVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += LANES) {
+            ByteVector first = ByteVector.fromArray(SPECIES, a, aOffset + i);
+            ByteVector second = ByteVector.fromArray(SPECIES, b, bOffset + i);
+            accumulator = accumulator.or(first.lanewise(VectorOperators.XOR, second));
+        }
+        int result = accumulator.reduceLanes(VectorOperators.OR);
+        for (; i < length; i ++) result |= a[aOffset + i] ^ b[bOffset + i];
+        return result;
+    }
+
+}
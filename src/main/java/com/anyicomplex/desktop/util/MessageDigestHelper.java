@@ -25,8 +25,51 @@
 
 package com.anyicomplex.desktop.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
 
 /**
  * Simple utility class that wraps {@link MessageDigest} to help generate string hash.
@@ -37,7 +80,7 @@ public final class MessageDigestHelper {
     private MessageDigestHelper(){}
 
     /**
-     * Hash types that {@link MessageDigest} supports.
+     * Hash types that {@link MessageDigest} supports, and non-cryptographic types provided by {@link FastHash}.
      */
     public static final class HashType {
 
@@ -50,6 +93,116 @@ public final class MessageDigestHelper {
         public static String SHA256 = "SHA-256";
         public static String SHA384 = "SHA-384";
         public static String SHA512 = "SHA-512";
+        /**
+         * Non-cryptographic xxHash64, for cache and partition keys only.
+         * @see FastHash#xxHash64(byte[])
+         */
+        public static String XXH64 = "XXH64";
+        /**
+         * Non-cryptographic Murmur3 x64 128-bit, for cache and partition keys only.
+         * @see FastHash#murmur3_128(byte[], int, int, int, long[])
+         */
+        public static String MURMUR3_128 = "MURMUR3-128";
+        /**
+         * Non-cryptographic CRC32C checksum, for cache and partition keys only.
+         * @see FastHash#crc32c(byte[])
+         */
+        public static String CRC32C = "CRC32C";
+    }
+
+    /**
+     * Keyed hash types that {@link Mac} supports.
+     */
+    public static final class MacType {
+
+        private MacType(){}
+
+        public static String HMAC_SHA256 = "HmacSHA256";
+        public static String HMAC_SHA384 = "HmacSHA384";
+        public static String HMAC_SHA512 = "HmacSHA512";
+    }
+
+    /**
+     * Max count of idle digests kept per thread and per hash type.
+     */
+    private static final int POOL_CAPACITY = 4;
+
+    private static final Map<String, MessageDigest> prototypes = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Map<String, ArrayDeque<MessageDigest>>> pool =
+            ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Obtain a {@link MessageDigest} of given type from current thread's pool, a new one will be created if pool is empty.<br>
+     * Note: The digest should be given back by {@link MessageDigestHelper#free(MessageDigest)} on the same thread after use.
+     *
+     * @param type hash type
+     * @return reset digest
+     */
+    public static MessageDigest obtain(String type) {
+        if (type == null) throw new NullPointerException("Unable to obtain digest: \ntype cannot be null.");
+        ArrayDeque<MessageDigest> digests = pool.get().get(type);
+        if (digests != null) {
+            MessageDigest digest = digests.pollFirst();
+            if (digest != null) return digest;
+        }
+        return newDigest(type);
+    }
+
+    /**
+     * Reset the digest and give it back to current thread's pool, so that it can be reused by next {@link MessageDigestHelper#obtain(String)}.
+     *
+     * @param digest digest obtained before
+     */
+    public static void free(MessageDigest digest) {
+        if (digest == null) throw new NullPointerException("Unable to free digest: \ndigest cannot be null.");
+        digest.reset();
+        ArrayDeque<MessageDigest> digests = pool.get().computeIfAbsent(digest.getAlgorithm(), key -> new ArrayDeque<>(POOL_CAPACITY));
+        if (digests.size() < POOL_CAPACITY) digests.offerFirst(digest);
+    }
+
+    /**
+     * Gets digest length in bytes of given hash type.
+     *
+     * @param type hash type
+     * @return digest length in bytes
+     */
+    public static int digestLength(String type) {
+        MessageDigest digest = obtain(type);
+        try {
+            return digest.getDigestLength();
+        } finally {
+            free(digest);
+        }
+    }
+
+    /**
+     * Create a new digest, clones a cached prototype if possible, to avoid the provider lookup of {@link MessageDigest#getInstance(String)}.
+     */
+    private static MessageDigest newDigest(String type) {
+        MessageDigest fast = FastHash.newDigest(type);
+        if (fast != null) return fast;
+        MessageDigest prototype = prototypes.get(type);
+        if (prototype != null) {
+            try {
+                synchronized (prototype) {
+                    return (MessageDigest) prototype.clone();
+                }
+            } catch (CloneNotSupportedException ignored) {
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance(type);
+            if (prototype == null) {
+                try {
+                    prototypes.putIfAbsent(type, (MessageDigest) digest.clone());
+                } catch (CloneNotSupportedException ignored) {
+                }
+            }
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -60,16 +213,576 @@ public final class MessageDigestHelper {
      * @return hash
      */
     public static byte[] hash(String type, byte[] input) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        return hash(type, input, 0, input.length);
+    }
+
+    /**
+     * Generate hash of part of input data depends on type.
+     *
+     * @param type hash type
+     * @param input the input data
+     * @param offset start offset in input
+     * @param length count of bytes to hash
+     * @return hash
+     */
+    public static byte[] hash(String type, byte[] input, int offset, int length) {
+        MessageDigest digest = obtain(type);
         try {
-            MessageDigest messageDigest = MessageDigest.getInstance(type);
-            return messageDigest.digest(input);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+            digest.update(input, offset, length);
+            return digest.digest();
+        } finally {
+            free(digest);
         }
     }
 
     /**
-     * Generate hash of input data depends on type.
+     * Size of per-thread read buffers used by stream and file hashing.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Files ranges larger than this will be memory-mapped in windows instead of being read through buffer.
+     */
+    private static final long MAP_THRESHOLD = 16L * 1024 * 1024;
+
+    /**
+     * Size of each memory-mapped window.
+     */
+    private static final int MAP_WINDOW = 64 * 1024 * 1024;
+
+    /**
+     * Digests are updated in slices of this size from memory-mapped windows and large arrays, so that cancellation is checked often enough.
+     */
+    private static final int MAP_SLICE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> directBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private static final ThreadLocal<byte[]> heapBuffer =
+            ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    /**
+     * Generate hash of file content depends on type. Heap usage stays constant whatever the file size.
+     *
+     * @param type hash type
+     * @param path the input file
+     * @return hash
+     * @throws IOException if an I/O error occurs
+     */
+    public static byte[] hash(String type, Path path) throws IOException {
+        MessageDigest digest = obtain(type);
+        try {
+            update(digest, path);
+            return digest.digest();
+        } finally {
+            free(digest);
+        }
+    }
+
+    /**
+     * Generate hash of all remaining data of input stream depends on type. The stream will not be closed.
+     *
+     * @param type hash type
+     * @param input the input stream
+     * @return hash
+     * @throws IOException if an I/O error occurs
+     */
+    public static byte[] hash(String type, InputStream input) throws IOException {
+        MessageDigest digest = obtain(type);
+        try {
+            update(digest, input);
+            return digest.digest();
+        } finally {
+            free(digest);
+        }
+    }
+
+    /**
+     * Generate root digest of chunked tree hash of file content, leaves are hashed in parallel.
+     * @see TreeHash#compute(String, Path, int, int)
+     *
+     * @param type hash type
+     * @param path the input file
+     * @param chunkSize leaf size in bytes
+     * @param parallelism count of threads hashing leaves, 0 or negative to use common fork-join pool
+     * @return root digest
+     * @throws IOException if an I/O error occurs
+     */
+    public static byte[] treeHash(String type, Path path, int chunkSize, int parallelism) throws IOException {
+        return TreeHash.compute(type, path, chunkSize, parallelism).getRoot();
+    }
+
+    /**
+     * Generate hash of all remaining data of slow input stream, reading ahead on another thread while hashing. The stream will not be closed.
+     * @see HashPipeline
+     *
+     * @param type hash type
+     * @param input the input stream
+     * @param bufferSize size of each read-ahead buffer in bytes
+     * @param depth count of read-ahead buffers, at least 2
+     * @return hash
+     * @throws IOException if an I/O error occurs
+     */
+    public static byte[] hashPipelined(String type, InputStream input, int bufferSize, int depth) throws IOException {
+        return new HashPipeline(bufferSize, depth).hash(type, input);
+    }
+
+    /**
+     * Update digest with file content.
+     *
+     * @param digest the digest to update
+     * @param path the input file
+     * @throws IOException if an I/O error occurs
+     */
+    public static void update(MessageDigest digest, Path path) throws IOException {
+        if (path == null) throw new NullPointerException("Unable to hash: \npath cannot be null.");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            update(digest, channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Update digest with all remaining data of input stream. The stream will not be closed.
+     *
+     * @param digest the digest to update
+     * @param input the input stream
+     * @throws IOException if an I/O error occurs
+     */
+    public static void update(MessageDigest digest, InputStream input) throws IOException {
+        update(digest, input, null, heapBuffer.get());
+    }
+
+    private static void update(MessageDigest digest, InputStream input, Future<?> task, byte[] buffer) throws IOException {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            checkCancelled(task);
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Update digest with a range of file channel, large ranges are memory-mapped in windows, others are read through a per-thread direct buffer.
+     */
+    static void update(MessageDigest digest, FileChannel channel, long position, long length) throws IOException {
+        update(digest, channel, position, length, null, directBuffer::get);
+    }
+
+    private static void update(MessageDigest digest, FileChannel channel, long position, long length, Future<?> task,
+                               Supplier<ByteBuffer> directBuffer) throws IOException {
+        long end = position + length;
+        if (length >= MAP_THRESHOLD) {
+            while (position < end) {
+                long size = Math.min(MAP_WINDOW, end - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                for (int slice = 0; slice < size; slice += MAP_SLICE) {
+                    checkCancelled(task);
+                    window.limit((int) Math.min(size, (long) slice + MAP_SLICE));
+                    digest.update(window);
+                }
+                position += size;
+            }
+        }
+        else {
+            ByteBuffer buffer = directBuffer.get();
+            while (position < end) {
+                checkCancelled(task);
+                buffer.clear();
+                if (end - position < buffer.capacity()) buffer.limit((int) (end - position));
+                int read = channel.read(buffer, position);
+                if (read == -1) break;
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+            }
+        }
+    }
+
+    /**
+     * Stop reading if the asynchronous task owning this hashing was cancelled or completed from outside.
+     */
+    private static void checkCancelled(Future<?> task) {
+        if (task != null && task.isDone()) throw new CancellationException("Hashing cancelled.");
+    }
+
+    private static volatile Executor asyncExecutor;
+
+    /**
+     * Lazily created default executor, see {@link MessageDigestHelper#getAsyncExecutor()}.
+     */
+    private static final class DefaultAsyncExecutor {
+
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) method.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+            }
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() * 2), runnable -> {
+                Thread thread = new Thread(runnable, "MessageDigestHelper-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+    }
+
+    /**
+     * Set executor that runs asynchronous hashing.
+     *
+     * @param executor executor, null to restore default
+     */
+    public static void setAsyncExecutor(Executor executor) {
+        asyncExecutor = executor;
+    }
+
+    /**
+     * Gets executor that runs asynchronous hashing. By default, it is a virtual-thread-per-task executor on runtimes that support
+     * virtual threads, otherwise a pool of daemon threads, twice as many as available processors.
+     *
+     * @return executor
+     */
+    public static Executor getAsyncExecutor() {
+        Executor executor = asyncExecutor;
+        return executor == null ? DefaultAsyncExecutor.INSTANCE : executor;
+    }
+
+    /**
+     * Generate hash of input data asynchronously on {@link MessageDigestHelper#getAsyncExecutor()}.<br>
+     * Note: Cancelling the returned future stops hashing.
+     *
+     * @param type hash type
+     * @param input the input data, should not be modified until the future is done
+     * @return future of hash
+     * @throws RuntimeException if type is not supported
+     */
+    public static CompletableFuture<byte[]> hashAsync(String type, byte[] input) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        return submit(type, (digest, task, buffers) -> {
+            for (int offset = 0; offset < input.length; offset += MAP_SLICE) {
+                checkCancelled(task);
+                digest.update(input, offset, Math.min(MAP_SLICE, input.length - offset));
+            }
+        });
+    }
+
+    /**
+     * Generate hash of file content asynchronously on {@link MessageDigestHelper#getAsyncExecutor()}.<br>
+     * Note: Cancelling the returned future stops reading.
+     *
+     * @param type hash type
+     * @param path the input file
+     * @return future of hash
+     */
+    public static CompletableFuture<byte[]> hashAsync(String type, Path path) {
+        if (path == null) throw new NullPointerException("Unable to hash: \npath cannot be null.");
+        return submit(type, (digest, task, buffers) -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                update(digest, channel, 0, channel.size(), task, buffers::direct);
+            }
+        });
+    }
+
+    /**
+     * Generate hash of all remaining data of input stream asynchronously on {@link MessageDigestHelper#getAsyncExecutor()}. The stream will not be closed.<br>
+     * Note: Cancelling the returned future stops reading after the current read returns.
+     *
+     * @param type hash type
+     * @param input the input stream
+     * @return future of hash
+     */
+    public static CompletableFuture<byte[]> hashAsync(String type, InputStream input) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        return submit(type, (digest, task, buffers) -> update(digest, input, task, buffers.heap()));
+    }
+
+    private interface AsyncUpdate {
+        void update(MessageDigest digest, Future<?> task, AsyncBuffers buffers) throws IOException;
+    }
+
+    /**
+     * Max count of idle digests per hash type, and of buffers, shared by asynchronous tasks.
+     */
+    private static final int ASYNC_POOL_CAPACITY = 64;
+
+    /**
+     * Bounded lock-free pool shared between threads. Asynchronous tasks may each run on a new (virtual) thread,
+     * where per-thread pools would never be reused.
+     */
+    private static final class SharedPool<T> {
+
+        private final ConcurrentLinkedQueue<T> items = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        T poll() {
+            T item = items.poll();
+            if (item != null) size.decrementAndGet();
+            return item;
+        }
+
+        void offer(T item) {
+            if (size.incrementAndGet() <= ASYNC_POOL_CAPACITY) items.offer(item);
+            else size.decrementAndGet();
+        }
+
+    }
+
+    private static final Map<String, SharedPool<MessageDigest>> asyncDigests = new ConcurrentHashMap<>();
+    private static final SharedPool<ByteBuffer> asyncDirectBuffers = new SharedPool<>();
+    private static final SharedPool<byte[]> asyncHeapBuffers = new SharedPool<>();
+
+    /**
+     * Buffers borrowed by one asynchronous task from the shared pools on first use.
+     */
+    private static final class AsyncBuffers {
+
+        private ByteBuffer direct;
+        private byte[] heap;
+
+        ByteBuffer direct() {
+            if (direct == null) {
+                direct = asyncDirectBuffers.poll();
+                if (direct == null) direct = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            return direct;
+        }
+
+        byte[] heap() {
+            if (heap == null) {
+                heap = asyncHeapBuffers.poll();
+                if (heap == null) heap = new byte[BUFFER_SIZE];
+            }
+            return heap;
+        }
+
+        void release() {
+            if (direct != null) asyncDirectBuffers.offer(direct);
+            if (heap != null) asyncHeapBuffers.offer(heap);
+        }
+
+    }
+
+    private static CompletableFuture<byte[]> submit(String type, AsyncUpdate update) {
+        if (type == null) throw new NullPointerException("Unable to hash: \ntype cannot be null.");
+        SharedPool<MessageDigest> pool = asyncDigests.get(type);
+        if (pool == null) {
+            // fails fast on unsupported type, before a pool is created for it
+            free(obtain(type));
+            pool = asyncDigests.computeIfAbsent(type, key -> new SharedPool<>());
+        }
+        SharedPool<MessageDigest> digests = pool;
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        try {
+            getAsyncExecutor().execute(() -> {
+                if (future.isDone()) return;
+                AsyncBuffers buffers = new AsyncBuffers();
+                MessageDigest digest = null;
+                try {
+                    digest = digests.poll();
+                    if (digest == null) digest = newDigest(type);
+                    update.update(digest, future, buffers);
+                    future.complete(digest.digest());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    if (digest != null) {
+                        digest.reset();
+                        digests.offer(digest);
+                    }
+                    buffers.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Size of each of the two buffers used by parallel multi-digest hashing.
+     */
+    private static final int PARALLEL_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Generate hashes of all given types from input data in a single pass.
+     *
+     * @param input the input data
+     * @param types hash types
+     * @return map of hash type to hash, in order of types
+     */
+    public static Map<String, byte[]> hashAll(byte[] input, String... types) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        MessageDigest[] digests = obtainAll(types);
+        try {
+            for (MessageDigest digest : digests) digest.update(input);
+            return digestAll(types, digests);
+        } finally {
+            for (MessageDigest digest : digests) free(digest);
+        }
+    }
+
+    /**
+     * Generate hashes of all given types from file content, the file is read only once.
+     * @see MessageDigestHelper#hashAll(InputStream, boolean, String...)
+     *
+     * @param path the input file
+     * @param parallel whether to update digests in parallel, useful for large files
+     * @param types hash types
+     * @return map of hash type to hash, in order of types
+     * @throws IOException if an I/O error occurs
+     */
+    public static Map<String, byte[]> hashAll(Path path, boolean parallel, String... types) throws IOException {
+        if (path == null) throw new NullPointerException("Unable to hash: \npath cannot be null.");
+        try (InputStream input = Files.newInputStream(path)) {
+            return hashAll(input, parallel, types);
+        }
+    }
+
+    /**
+     * Generate hashes of all given types from all remaining data of input stream, the stream is read only once and will not be closed.<br>
+     * Note: In parallel mode, digests consume one buffer on {@link ForkJoinPool#commonPool()} while next buffer is being read.
+     *
+     * @param input the input stream
+     * @param parallel whether to update digests in parallel, useful for large inputs
+     * @param types hash types
+     * @return map of hash type to hash, in order of types
+     * @throws IOException if an I/O error occurs
+     */
+    public static Map<String, byte[]> hashAll(InputStream input, boolean parallel, String... types) throws IOException {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        MessageDigest[] digests = obtainAll(types);
+        try {
+            if (parallel && digests.length > 1) updateAllParallel(digests, input);
+            else {
+                byte[] buffer = heapBuffer.get();
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    for (MessageDigest digest : digests) digest.update(buffer, 0, read);
+                }
+            }
+            return digestAll(types, digests);
+        } finally {
+            for (MessageDigest digest : digests) free(digest);
+        }
+    }
+
+    private static MessageDigest[] obtainAll(String[] types) {
+        if (types == null || types.length == 0) throw new IllegalArgumentException("Unable to hash: \ntypes cannot be empty.");
+        MessageDigest[] digests = new MessageDigest[types.length];
+        try {
+            for (int i = 0; i < types.length; i ++) digests[i] = obtain(types[i]);
+        } catch (RuntimeException e) {
+            for (MessageDigest digest : digests) if (digest != null) free(digest);
+            throw e;
+        }
+        return digests;
+    }
+
+    private static Map<String, byte[]> digestAll(String[] types, MessageDigest[] digests) {
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (int i = 0; i < types.length; i ++) result.put(types[i], digests[i].digest());
+        return result;
+    }
+
+    private static void updateAllParallel(MessageDigest[] digests, InputStream input) throws IOException {
+        byte[][] buffers = {new byte[PARALLEL_BUFFER_SIZE], new byte[PARALLEL_BUFFER_SIZE]};
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[digests.length];
+        int current = 0;
+        int read = readFully(input, buffers[current]);
+        while (read > 0) {
+            byte[] buffer = buffers[current];
+            int length = read;
+            for (int i = 0; i < digests.length; i ++) {
+                MessageDigest digest = digests[i];
+                tasks[i] = ForkJoinPool.commonPool().submit(() -> digest.update(buffer, 0, length));
+            }
+            current ^= 1;
+            try {
+                read = readFully(input, buffers[current]);
+            } finally {
+                for (ForkJoinTask<?> task : tasks) task.join();
+            }
+        }
+    }
+
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = input.read(buffer, total, buffer.length - total);
+            if (read == -1) break;
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Count of inputs hashed by one worker with the same digest in batch hashing.
+     */
+    private static final int BATCH_SLICE = 256;
+
+    /**
+     * Generate hashes of all inputs in parallel, each worker reuses one digest for a slice of inputs.
+     *
+     * @param type hash type
+     * @param inputs the input data, no element can be null
+     * @return flat array of inputs.length * {@link MessageDigestHelper#digestLength(String)} bytes, the i-th hash starts at i * digest length
+     */
+    public static byte[] hashBatch(String type, byte[][] inputs) {
+        if (inputs == null) throw new NullPointerException("Unable to hash batch: \ninputs cannot be null.");
+        int length = digestLength(type);
+        byte[] result = new byte[inputs.length * length];
+        int slices = (inputs.length + BATCH_SLICE - 1) / BATCH_SLICE;
+        IntStream stream = IntStream.range(0, slices);
+        if (slices > 1) stream = stream.parallel();
+        stream.forEach(slice -> {
+            MessageDigest digest = obtain(type);
+            try {
+                for (int i = slice * BATCH_SLICE, end = Math.min(inputs.length, i + BATCH_SLICE); i < end; i ++) {
+                    digest.update(inputs[i]);
+                    digest.digest(result, i * length, length);
+                }
+            } catch (DigestException e) {
+                throw new RuntimeException(e);
+            } finally {
+                free(digest);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Generate hashes of all inputs in parallel.
+     * @see MessageDigestHelper#hashBatch(String, byte[][])
+     *
+     * @param type hash type
+     * @param inputs the input data, no element can be null
+     * @return flat array of inputs.size() * digest length bytes
+     */
+    public static byte[] hashBatch(String type, List<byte[]> inputs) {
+        if (inputs == null) throw new NullPointerException("Unable to hash batch: \ninputs cannot be null.");
+        return hashBatch(type, inputs.toArray(new byte[0][]));
+    }
+
+    /**
+     * Generate hashes of all inputs in parallel, in encounter order of stream.
+     * @see MessageDigestHelper#hashBatch(String, byte[][])
+     *
+     * @param type hash type
+     * @param inputs the input data, no element can be null
+     * @return flat array of count * digest length bytes
+     */
+    public static byte[] hashBatch(String type, Stream<byte[]> inputs) {
+        if (inputs == null) throw new NullPointerException("Unable to hash batch: \ninputs cannot be null.");
+        return hashBatch(type, inputs.toArray(byte[][]::new));
+    }
+
+    /**
+     * Generate hash of input data depends on type.<br>
+     * Note: Input is encoded with platform default charset, use {@link MessageDigestHelper#hash(String, CharSequence, Charset)} for stable results across platforms.
      * @see MessageDigestHelper#hash(String, byte[]) 
      * 
      * @param type hash type
@@ -80,6 +793,319 @@ public final class MessageDigestHelper {
         return hash(type, input.getBytes());
     }
 
+    /**
+     * Generate hash of chars encoded with given charset, the same input always hashes the same whatever the platform default charset.<br>
+     * Note: Chars are encoded in chunks into a per-thread buffer, no copy of whole input is made. Malformed chars are replaced as {@link String#getBytes(Charset)} does.
+     *
+     * @param type hash type
+     * @param input the input chars
+     * @param charset charset to encode chars
+     * @return hash
+     */
+    public static byte[] hash(String type, CharSequence input, Charset charset) {
+        MessageDigest digest = obtain(type);
+        try {
+            update(digest, input, charset);
+            return digest.digest();
+        } finally {
+            free(digest);
+        }
+    }
+
+    private static final ThreadLocal<ByteBuffer> wrappedHeapBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.wrap(heapBuffer.get()));
+
+    private static final ThreadLocal<Map<Charset, CharsetEncoder>> encoders =
+            ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Update digest with chars encoded with given charset.
+     * @see MessageDigestHelper#hash(String, CharSequence, Charset)
+     *
+     * @param digest the digest to update
+     * @param input the input chars
+     * @param charset charset to encode chars
+     */
+    public static void update(MessageDigest digest, CharSequence input, Charset charset) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        if (charset == null) throw new NullPointerException("Unable to hash: \ncharset cannot be null.");
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            updateUTF8(digest, input);
+            return;
+        }
+        CharsetEncoder encoder = encoders.get().computeIfAbsent(charset, key -> key.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        encoder.reset();
+        CharBuffer chars = CharBuffer.wrap(input);
+        ByteBuffer buffer = wrappedHeapBuffer.get();
+        CoderResult result;
+        do {
+            buffer.clear();
+            result = encoder.encode(chars, buffer, true);
+            digest.update(buffer.array(), 0, buffer.position());
+        } while (result.isOverflow());
+        do {
+            buffer.clear();
+            result = encoder.flush(buffer);
+            digest.update(buffer.array(), 0, buffer.position());
+        } while (result.isOverflow());
+    }
+
+    private static void updateUTF8(MessageDigest digest, CharSequence input) {
+        byte[] buffer = heapBuffer.get();
+        int limit = buffer.length - 4;
+        int position = 0;
+        for (int i = 0, length = input.length(); i < length; i ++) {
+            if (position > limit) {
+                digest.update(buffer, 0, position);
+                position = 0;
+            }
+            char c = input.charAt(i);
+            if (c < 0x80) buffer[position ++] = (byte) c;
+            else if (c < 0x800) {
+                buffer[position ++] = (byte) (0xC0 | (c >> 6));
+                buffer[position ++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                char low;
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(low = input.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, low);
+                    buffer[position ++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position ++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position ++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position ++] = (byte) (0x80 | (codePoint & 0x3F));
+                    i ++;
+                }
+                else buffer[position ++] = '?';
+            }
+            else {
+                buffer[position ++] = (byte) (0xE0 | (c >> 12));
+                buffer[position ++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position ++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        digest.update(buffer, 0, position);
+    }
+
+    /**
+     * Generate hash of input data directly into caller buffer, without allocating a result array.
+     *
+     * @param type hash type
+     * @param input the input data
+     * @param output buffer receives hash
+     * @param outputOffset start offset in output
+     * @return count of bytes written, which is {@link MessageDigestHelper#digestLength(String)}
+     */
+    public static int hash(String type, byte[] input, byte[] output, int outputOffset) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        if (output == null) throw new NullPointerException("Unable to hash: \noutput cannot be null.");
+        MessageDigest digest = obtain(type);
+        try {
+            digest.update(input);
+            return digest.digest(output, outputOffset, output.length - outputOffset);
+        } catch (DigestException e) {
+            throw new IllegalArgumentException("Unable to hash: \noutput too short.", e);
+        } finally {
+            free(digest);
+        }
+    }
+
+    /**
+     * Generate hash of input data as URL-safe Base64 without padding, about 2/3 the size of hex.
+     *
+     * @param type hash type
+     * @param input the input data
+     * @return URL-safe Base64 hash
+     */
+    public static String hashBase64Url(String type, byte[] input) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash(type, input));
+    }
+
+    /**
+     * Generate hash of input data as upper-case base32 without padding, suitable for case-insensitive file systems.
+     * @see Base32Codec
+     *
+     * @param type hash type
+     * @param input the input data
+     * @return base32 hash
+     */
+    public static String hashBase32(String type, byte[] input) {
+        return Base32Codec.encode(hash(type, input));
+    }
+
+    /**
+     * Generate hash of input data packed into a long, from first 8 bytes of digest in big-endian order.
+     * For {@link HashType#XXH64} this is the xxHash64 value itself, shorter digests fill the low bits.
+     *
+     * @param type hash type
+     * @param input the input data
+     * @return packed hash
+     */
+    public static long hashLong(String type, byte[] input) {
+        if (input == null) throw new NullPointerException("Unable to hash: \ninput cannot be null.");
+        MessageDigest digest = obtain(type);
+        try {
+            digest.update(input);
+            byte[] result = digest.digest();
+            long value = 0;
+            for (int i = 0, end = Math.min(8, result.length); i < end; i ++) value = (value << 8) | (result[i] & 0xFF);
+            return value;
+        } finally {
+            free(digest);
+        }
+    }
+
+    /**
+     * Generate hash of input data packed into a {@link UUID}, from first 16 bytes of digest with RFC 9562 version 8 (custom) and variant bits set.
+     *
+     * @param type hash type, digest must be at least 16 bytes
+     * @param input the input data
+     * @return packed hash
+     */
+    public static UUID hashUUID(String type, byte[] input) {
+        byte[] result = hash(type, input);
+        if (result.length < 16) throw new IllegalArgumentException("Unable to pack hash into UUID: \ndigest shorter than 16 bytes.");
+        result[6] = (byte) ((result[6] & 0x0F) | 0x80);
+        result[8] = (byte) ((result[8] & 0x3F) | 0x80);
+        long most = 0;
+        long least = 0;
+        for (int i = 0; i < 8; i ++) most = (most << 8) | (result[i] & 0xFF);
+        for (int i = 8; i < 16; i ++) least = (least << 8) | (result[i] & 0xFF);
+        return new UUID(most, least);
+    }
+
+    /**
+     * Compare two digests in time independent of where they differ, SIMD-accelerated when {@link HexCodec#isVectorized()}.
+     *
+     * @param a first digest
+     * @param b second digest
+     * @return whether digests are equal
+     */
+    public static boolean isEqual(byte[] a, byte[] b) {
+        if (a == b) return true;
+        if (a == null || b == null || a.length != b.length) return false;
+        return HexCodec.isEqual(a, 0, b, 0, a.length);
+    }
+
+    /**
+     * Max count of pre-keyed {@link Mac} instances kept per thread, least recently used ones are dropped.
+     */
+    private static final int MAC_POOL_CAPACITY = 16;
+
+    private static final ThreadLocal<MacPool> macPool = ThreadLocal.withInitial(MacPool::new);
+
+    /**
+     * Generate keyed hash (HMAC) of input data depends on type.<br>
+     * Note: Initialized {@link Mac} instances are pooled per thread and key, so signing many payloads with the same key skips {@link Mac#init(java.security.Key)}.
+     *
+     * @param type keyed hash type, see {@link MacType}
+     * @param key secret key
+     * @param input the input data
+     * @return keyed hash
+     */
+    public static byte[] hmac(String type, byte[] key, byte[] input) {
+        if (input == null) throw new NullPointerException("Unable to hmac: \ninput cannot be null.");
+        Mac mac = macPool.get().obtain(type, key);
+        mac.update(input);
+        return mac.doFinal();
+    }
+
+    /**
+     * Generate keyed hash (HMAC) of part of input data into caller buffer.
+     * @see MessageDigestHelper#hmac(String, byte[], byte[])
+     *
+     * @param type keyed hash type, see {@link MacType}
+     * @param key secret key
+     * @param input the input data
+     * @param offset start offset in input
+     * @param length count of bytes to hash
+     * @param output buffer receives keyed hash
+     * @param outputOffset start offset in output
+     * @return count of bytes written
+     */
+    public static int hmac(String type, byte[] key, byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        if (input == null) throw new NullPointerException("Unable to hmac: \ninput cannot be null.");
+        if (output == null) throw new NullPointerException("Unable to hmac: \noutput cannot be null.");
+        Mac mac = macPool.get().obtain(type, key);
+        mac.update(input, offset, length);
+        try {
+            mac.doFinal(output, outputOffset);
+        } catch (ShortBufferException e) {
+            mac.reset();
+            throw new IllegalArgumentException("Unable to hmac: \noutput too short.", e);
+        }
+        return mac.getMacLength();
+    }
+
+    /**
+     * Per-thread LRU of initialized {@link Mac} keyed by type and key content. Lookups use a reusable probe, so a hit allocates nothing.
+     */
+    private static final class MacPool extends LinkedHashMap<MacPool.Key, Mac> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Key probe = new Key();
+
+        MacPool() {
+            super(MAC_POOL_CAPACITY * 2, 0.75f, true);
+        }
+
+        Mac obtain(String type, byte[] key) {
+            if (type == null) throw new NullPointerException("Unable to hmac: \ntype cannot be null.");
+            if (key == null) throw new NullPointerException("Unable to hmac: \nkey cannot be null.");
+            probe.set(type, key);
+            Mac mac = get(probe);
+            probe.key = null;
+            if (mac != null) return mac;
+            byte[] copy = key.clone();
+            try {
+                mac = Mac.getInstance(type);
+                mac.init(new SecretKeySpec(copy, type));
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            } catch (InvalidKeyException e) {
+                throw new IllegalArgumentException("Unable to hmac: \ninvalid key.", e);
+            }
+            Key entry = new Key();
+            entry.set(type, copy);
+            put(entry, mac);
+            return mac;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Mac> eldest) {
+            return size() > MAC_POOL_CAPACITY;
+        }
+
+        static final class Key {
+
+            String type;
+            byte[] key;
+            int hash;
+
+            void set(String type, byte[] key) {
+                this.type = type;
+                this.key = key;
+                this.hash = type.hashCode() * 31 + Arrays.hashCode(key);
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object object) {
+                if (!(object instanceof Key)) return false;
+                Key other = (Key) object;
+                return hash == other.hash && type.equals(other.type) && MessageDigest.isEqual(key, other.key);
+            }
+
+        }
+
+    }
+
     /**
      * Generate md2 hash of input data.
      * 
@@ -101,6 +1127,18 @@ public final class MessageDigestHelper {
         return md2(input.getBytes());
     }
 
+    /**
+     * Generate md2 hash of input chars encoded with given charset.
+     * @see MessageDigestHelper#hash(String, CharSequence, Charset)
+     *
+     * @param input the input chars
+     * @param charset charset to encode chars
+     * @return md2 hash
+     */
+    public static String md2(CharSequence input, Charset charset) {
+        return byteArray2HexString(hash(HashType.MD2, input, charset));
+    }
+
     /**
      * Generate md5 hash of input data.
      *
@@ -122,6 +1160,18 @@ public final class MessageDigestHelper {
         return md5(input.getBytes());
     }
 
+    /**
+     * Generate md5 hash of input chars encoded with given charset.
+     * @see MessageDigestHelper#hash(String, CharSequence, Charset)
+     *
+     * @param input the input chars
+     * @param charset charset to encode chars
+     * @return md5 hash
+     */
+    public static String md5(CharSequence input, Charset charset) {
+        return byteArray2HexString(hash(HashType.MD5, input, charset));
+    }
+
     /**
      * Generate sha-1 hash of input data.
      *
@@ -143,6 +1193,18 @@ public final class MessageDigestHelper {
         return sha1(input.getBytes());
     }
 
+    /**
+     * Generate sha-1 hash of input chars encoded with given charset.
+     * @see MessageDigestHelper#hash(String, CharSequence, Charset)
+     *
+     * @param input the input chars
+     * @param charset charset to encode chars
+     * @return sha-1 hash
+     */
+    public static String sha1(CharSequence input, Charset charset) {
+        return byteArray2HexString(hash(HashType.SHA1, input, charset));
+    }
+
     /**
      * Generate sha-224 hash of input data.
      *
@@ -164,6 +1226,18 @@ public final class MessageDigestHelper {
         return sha224(input.getBytes());
     }
 
+    /**
+     * Generate sha-224 hash of input chars encoded with given charset.
+     * @see MessageDigestHelper#hash(String, CharSequence, Charset)
+     *
+     * @param input the input chars
+     * @param charset charset to encode chars
+     * @return sha-224 hash
+     */
+    public static String sha224(CharSequence input, Charset charset) {
+        return byteArray2HexString(hash(HashType.SHA224, input, charset));
+    }
+
     /**
      * Generate sha-256 hash of input data.
      *
@@ -185,6 +1259,18 @@ public final class MessageDigestHelper {
         return sha256(input.getBytes());
     }
 
+    /**
+     * Generate sha-256 hash of input chars encoded with given charset.
+     * @see MessageDigestHelper#hash(String, CharSequence, Charset)
+     *
+     * @param input the input chars
+     * @param charset charset to encode chars
+     * @return sha-256 hash
+     */
+    public static String sha256(CharSequence input, Charset charset) {
+        return byteArray2HexString(hash(HashType.SHA256, input, charset));
+    }
+
     /**
      * Generate sha-384 hash of input data.
      *
@@ -206,6 +1292,18 @@ public final class MessageDigestHelper {
         return sha384(input.getBytes());
     }
 
+    /**
+     * Generate sha-384 hash of input chars encoded with given charset.
+     * @see MessageDigestHelper#hash(String, CharSequence, Charset)
+     *
+     * @param input the input chars
+     * @param charset charset to encode chars
+     * @return sha-384 hash
+     */
+    public static String sha384(CharSequence input, Charset charset) {
+        return byteArray2HexString(hash(HashType.SHA384, input, charset));
+    }
+
     /**
      * Generate sha-512 hash of input data.
      *
@@ -227,13 +1325,56 @@ public final class MessageDigestHelper {
         return sha512(input.getBytes());
     }
 
+    /**
+     * Generate sha-512 hash of input chars encoded with given charset.
+     * @see MessageDigestHelper#hash(String, CharSequence, Charset)
+     *
+     * @param input the input chars
+     * @param charset charset to encode chars
+     * @return sha-512 hash
+     */
+    public static String sha512(CharSequence input, Charset charset) {
+        return byteArray2HexString(hash(HashType.SHA512, input, charset));
+    }
+
+    /**
+     * Generate hmac-sha256 of input data.
+     * @see MessageDigestHelper#hmac(String, byte[], byte[])
+     *
+     * @param key secret key
+     * @param input the input data
+     * @return hmac-sha256
+     */
+    public static String hmacSha256(byte[] key, byte[] input) {
+        return byteArray2HexString(hmac(MacType.HMAC_SHA256, key, input));
+    }
+
+    /**
+     * Generate hmac-sha384 of input data.
+     * @see MessageDigestHelper#hmac(String, byte[], byte[])
+     *
+     * @param key secret key
+     * @param input the input data
+     * @return hmac-sha384
+     */
+    public static String hmacSha384(byte[] key, byte[] input) {
+        return byteArray2HexString(hmac(MacType.HMAC_SHA384, key, input));
+    }
+
+    /**
+     * Generate hmac-sha512 of input data.
+     * @see MessageDigestHelper#hmac(String, byte[], byte[])
+     *
+     * @param key secret key
+     * @param input the input data
+     * @return hmac-sha512
+     */
+    public static String hmacSha512(byte[] key, byte[] input) {
+        return byteArray2HexString(hmac(MacType.HMAC_SHA512, key, input));
+    }
+
     private static String byteArray2HexString(byte[] input) {
-        StringBuilder hex = new StringBuilder();
-        for (byte b : input) {
-            hex.append(String.format("%02X", b));
-        }
-        while (hex.length() < 32) hex.insert(0, '0');
-        return hex.toString();
+        return HexCodec.encode(input, true);
     }
 
 }
@@ -0,0 +1,257 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Password hashing with PBKDF2-HMAC-SHA256. Salt and iteration count are stored in the output, formatted as
+ * "pbkdf2-sha256$iterations$salt$hash" with unpadded Base64 salt and hash, so the cost can be raised later without breaking stored hashes.<br>
+ * Note: Use this instead of {@link MessageDigestHelper#sha256(String)} for passwords and secrets, plain digests are far too fast to resist guessing.
+ */
+public final class PasswordHash {
+
+    private PasswordHash(){}
+
+    /**
+     * Default iteration count, the OWASP recommendation for PBKDF2-HMAC-SHA256.
+     */
+    public static final int DEFAULT_ITERATIONS = 600000;
+
+    /**
+     * Min iteration count accepted by {@link PasswordHash#setIterations(int)} and returned by {@link PasswordHash#calibrate(long)}.
+     */
+    public static final int MIN_ITERATIONS = 10000;
+
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private static volatile int iterations = DEFAULT_ITERATIONS;
+
+    /**
+     * Set iteration count used by {@link PasswordHash#hash(char[])}, e.g. the result of {@link PasswordHash#calibrate(long)}.
+     *
+     * @param count iteration count, at least {@link PasswordHash#MIN_ITERATIONS}
+     */
+    public static void setIterations(int count) {
+        if (count < MIN_ITERATIONS) throw new IllegalArgumentException("Unable to set iterations: \ncount must be at least " + MIN_ITERATIONS + ".");
+        iterations = count;
+    }
+
+    /**
+     * Gets iteration count used by {@link PasswordHash#hash(char[])}.
+     * @return iteration count
+     */
+    public static int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Hash password with random salt and current iteration count.
+     *
+     * @param password password, not modified
+     * @return encoded hash containing salt and iteration count
+     */
+    public static String hash(char[] password) {
+        return hash(password, iterations);
+    }
+
+    /**
+     * Hash password with random salt and given iteration count.
+     *
+     * @param password password, not modified
+     * @param iterations iteration count, must be positive
+     * @return encoded hash containing salt and iteration count
+     */
+    public static String hash(char[] password, int iterations) {
+        if (password == null) throw new NullPointerException("Unable to hash password: \npassword cannot be null.");
+        if (iterations <= 0) throw new IllegalArgumentException("Unable to hash password: \niterations must be positive.");
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations, HASH_LENGTH);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + '$' + iterations + '$' + encoder.encodeToString(salt) + '$' + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Verify password against encoded hash, comparison is constant-time.
+     *
+     * @param password password, not modified
+     * @param encoded hash returned by {@link PasswordHash#hash(char[])}
+     * @return whether password matches
+     */
+    public static boolean verify(char[] password, String encoded) {
+        if (password == null) throw new NullPointerException("Unable to verify password: \npassword cannot be null.");
+        Parsed parsed = parse(encoded);
+        return MessageDigest.isEqual(parsed.hash, pbkdf2(password, parsed.salt, parsed.iterations, parsed.hash.length));
+    }
+
+    /**
+     * Validates whether encoded hash uses fewer iterations than current setting and should be replaced after next successful login.
+     *
+     * @param encoded hash returned by {@link PasswordHash#hash(char[])}
+     * @return whether rehash is recommended
+     */
+    public static boolean needsRehash(String encoded) {
+        return parse(encoded).iterations < iterations;
+    }
+
+    /**
+     * Benchmark this machine and return the iteration count whose hashing takes about target time, rounded to thousands.
+     *
+     * @param targetMillis target hashing time in milliseconds, e.g. 100
+     * @return calibrated iteration count, at least {@link PasswordHash#MIN_ITERATIONS}
+     */
+    public static int calibrate(long targetMillis) {
+        if (targetMillis <= 0) throw new IllegalArgumentException("Unable to calibrate: \ntargetMillis must be positive.");
+        char[] password = "calibration".toCharArray();
+        byte[] salt = new byte[SALT_LENGTH];
+        int sample = MIN_ITERATIONS;
+        long best = Long.MAX_VALUE;
+        // warm up JIT first, then keep the fastest of several runs to filter out scheduling noise
+        for (int i = 0; i < 8; i ++) {
+            long start = System.nanoTime();
+            pbkdf2(password, salt, sample, HASH_LENGTH);
+            long elapsed = System.nanoTime() - start;
+            if (i >= 3) best = Math.min(best, elapsed);
+        }
+        double count = (double) sample * TimeUnit.MILLISECONDS.toNanos(targetMillis) / Math.max(1, best);
+        long rounded = Math.round(count / 1000) * 1000;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(Integer.MAX_VALUE / 1000 * 1000, rounded));
+    }
+
+    /**
+     * Max count of verifications waiting for a thread, further requests are rejected instead of piling up.
+     */
+    private static final int VERIFY_QUEUE_CAPACITY = 256;
+
+    private static final class VerifyExecutor {
+
+        static final ExecutorService INSTANCE = create();
+
+        private static ExecutorService create() {
+            int threads = Runtime.getRuntime().availableProcessors();
+            AtomicInteger count = new AtomicInteger();
+            return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(VERIFY_QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "PasswordHash-verify-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+    }
+
+    /**
+     * Verify password asynchronously on a bounded pool with one thread per available processor, so login bursts are spread across cores.<br>
+     * Note: The password array is copied and the copy is cleared after verification. If the pool queue is full,
+     * the future completes exceptionally with {@link RejectedExecutionException}.
+     *
+     * @param password password, not modified
+     * @param encoded hash returned by {@link PasswordHash#hash(char[])}
+     * @return future of whether password matches
+     */
+    public static CompletableFuture<Boolean> verifyAsync(char[] password, String encoded) {
+        if (password == null) throw new NullPointerException("Unable to verify password: \npassword cannot be null.");
+        char[] copy = password.clone();
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        try {
+            VerifyExecutor.INSTANCE.execute(() -> {
+                try {
+                    future.complete(verify(copy, encoded));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    Arrays.fill(copy, '\0');
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Arrays.fill(copy, '\0');
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new RuntimeException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static final class Parsed {
+
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+
+        Parsed(int iterations, byte[] salt, byte[] hash) {
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+    }
+
+    private static Parsed parse(String encoded) {
+        if (encoded == null) throw new NullPointerException("Unable to parse password hash: \nencoded cannot be null.");
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) throw new IllegalArgumentException("Unable to parse password hash: \nunknown format.");
+        try {
+            int count = Integer.parseInt(parts[1]);
+            if (count <= 0) throw new IllegalArgumentException("Unable to parse password hash: \ninvalid iteration count.");
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] hash = decoder.decode(parts[3]);
+            if (hash.length == 0) throw new IllegalArgumentException("Unable to parse password hash: \nempty hash.");
+            return new Parsed(count, decoder.decode(parts[2]), hash);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unable to parse password hash: \ninvalid iteration count.", e);
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Reusable path builder that scans each segment once, removing spaces at start and end, converting separators to {@link PathHelper#SEPARATOR}
+ * and collapsing duplicate separators while writing into a single buffer.<br>
+ * Note: A leading double separator (UNC prefix) is kept on Windows.<br>
+ * Note: Instances are not thread-safe, call {@link PathBuilder#reset()} to reuse one.
+ * @see PathHelper#build(String...)
+ */
+public final class PathBuilder {
+
+    private static final char SEPARATOR = PathHelper.SEPARATOR.charAt(0);
+    private static final boolean KEEP_UNC = SystemInfo.isWindows();
+
+    private char[] buffer;
+    private int length;
+
+    /**
+     * Create a builder with default capacity.
+     */
+    public PathBuilder() {
+        this(128);
+    }
+
+    /**
+     * Create a builder with given initial capacity.
+     *
+     * @param capacity initial capacity in chars
+     */
+    public PathBuilder(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Unable to create path builder: \ncapacity must be positive.");
+        buffer = new char[capacity];
+    }
+
+    /**
+     * Append a path segment. Null or blank segment will be ignored.
+     *
+     * @param segment path segment, can contain separators
+     * @return this builder
+     */
+    public PathBuilder append(String segment) {
+        if (segment == null) return this;
+        int start = 0;
+        int end = segment.length();
+        while (start < end && segment.charAt(start) == ' ') start ++;
+        while (end > start && segment.charAt(end - 1) == ' ') end --;
+        if (start == end) return this;
+        ensureCapacity(length + end - start + 1);
+        char[] buffer = this.buffer;
+        int length = this.length;
+        if (length > 0 && buffer[length - 1] != SEPARATOR) buffer[length ++] = SEPARATOR;
+        for (int i = start; i < end; i ++) {
+            char c = segment.charAt(i);
+            if (c == '/' || c == '\\') {
+                if (length > 0 && buffer[length - 1] == SEPARATOR && !(KEEP_UNC && length == 1)) continue;
+                c = SEPARATOR;
+            }
+            buffer[length ++] = c;
+        }
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Append an already normalized path as is, copying it in bulk without scanning.
+     *
+     * @param normalized normalized path
+     * @return this builder
+     */
+    PathBuilder appendNormalized(String normalized) {
+        int count = normalized.length();
+        ensureCapacity(length + count + 1);
+        if (length > 0 && buffer[length - 1] != SEPARATOR) buffer[length ++] = SEPARATOR;
+        normalized.getChars(0, count, buffer, length);
+        length += count;
+        return this;
+    }
+
+    /**
+     * Append path segments in order.
+     * @see PathBuilder#append(String)
+     *
+     * @param segments path segments
+     * @return this builder
+     */
+    public PathBuilder append(String... segments) {
+        if (segments == null) throw new NullPointerException("Unable to append path: \nsegments cannot be null.");
+        for (String segment : segments) append(segment);
+        return this;
+    }
+
+    /**
+     * Clear the builder for reuse, keeping its buffer.
+     *
+     * @return this builder
+     */
+    public PathBuilder reset() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Gets count of chars currently built, including a pending end separator.
+     *
+     * @return count of chars
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Gets built path as string.<br>
+     * Note: Returned path ends without a file separator, unless it is the root separator only.
+     *
+     * @return built path
+     */
+    @Override
+    public String toString() {
+        int end = length;
+        if (end > 1 && buffer[end - 1] == SEPARATOR) end --;
+        return new String(buffer, 0, end);
+    }
+
+    /**
+     * Gets built path as {@link Path}.
+     *
+     * @return built path
+     */
+    public Path toPath() {
+        return Paths.get(toString());
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+    }
+
+}
@@ -25,6 +25,11 @@
 
 package com.anyicomplex.desktop.util;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Simple utility class that helps to build file storage path.
  * @see SystemPath
@@ -38,29 +43,46 @@ public final class PathHelper {
      */
     public static final String SEPARATOR = System.getProperty("file.separator");
 
+    private static final ThreadLocal<PathBuilder> BUILDER = ThreadLocal.withInitial(PathBuilder::new);
+
     /**
-     * Build given paths to a single string, will convert all separators to {@link PathHelper#SEPARATOR} and remove spaces at start and end of each string.<br>
+     * Build given paths to a single string, will convert all separators to {@link PathHelper#SEPARATOR}, collapse duplicate separators
+     * and remove spaces at start and end of each string.<br>
      * Note: No guarantee of generated path valid if paths contains invalid string or illegal char.<br>
      * Note: Returned path ends without a file separator.
      *
-     * @see PathHelper#removeStartEndSpaces(String)
-     * @see PathHelper#convertSeparator(String)
+     * @see PathBuilder
      *
      * @param paths paths to build
      * @return built single-string path
      */
     public static String build(String... paths) {
         if (paths == null) throw new NullPointerException("Unable to build path: \npaths cannot be null");
-        StringBuilder builder = new StringBuilder();
-        for (String path : paths) {
-            if (path == null) continue;
-            path = removeStartEndSpaces(path);
-            if (path.equals("")) continue;
-            path = convertSeparator(path);
-            builder.append(path);
-            if (!path.endsWith(SEPARATOR)) builder.append(SEPARATOR);
-        }
-        return removeSeparatorAtEnd(builder.toString());
+        PathBuilder builder = BUILDER.get().reset();
+        for (String path : paths) builder.append(path);
+        return builder.toString();
+    }
+
+    /**
+     * Build given paths to a {@link Path}.
+     * @see PathHelper#build(String...)
+     *
+     * @param paths paths to build
+     * @return built path
+     */
+    public static Path buildPath(String... paths) {
+        return Paths.get(build(paths));
+    }
+
+    /**
+     * Create a builder bound to given base path, which is built and normalized once, for building large numbers of paths under it.
+     * @see PathPrefix
+     *
+     * @param base base path segments
+     * @return path prefix
+     */
+    public static PathPrefix under(String... base) {
+        return new PathPrefix(build(base));
     }
 
     /**
@@ -75,7 +97,7 @@ public final class PathHelper {
      * @return built app data path
      */
     public static String buildAppDataPath(String companyName, String appType, String appName) {
-        return build(SystemPath.userData(), companyName, appType, appName);
+        return appPath(SystemPath.Location.DATA, companyName, appType, appName);
     }
 
     /**
@@ -117,7 +139,7 @@ public final class PathHelper {
      * @return built app config path
      */
     public static String buildAppConfigPath(String companyName, String appType, String appName) {
-        return build(SystemPath.userConfig(), companyName, appType, appName);
+        return appPath(SystemPath.Location.CONFIG, companyName, appType, appName);
     }
 
     /**
@@ -159,8 +181,7 @@ public final class PathHelper {
      * @return built app cache path
      */
     public static String buildAppCachePath(String companyName, String appType, String appName) {
-        if (SystemInfo.isWindows()) return build(SystemPath.userConfig(), companyName, appType, appName, "Cache");
-        return build(SystemPath.userCache(), companyName, appType, appName);
+        return appPath(SystemPath.Location.CACHE, companyName, appType, appName);
     }
 
     /**
@@ -190,6 +211,129 @@ public final class PathHelper {
         return buildAppCachePath(null, null, appName);
     }
 
+    /**
+     * Build app temporary path with companyName, appType and appName. All of them can be null.<br>
+     * Note: Returned path ends without a file separator.
+     *
+     * @see SystemPath#temporary()
+     *
+     * @param companyName company name
+     * @param appType app type
+     * @param appName app name
+     * @return built app temporary path
+     */
+    public static String buildAppTemporaryPath(String companyName, String appType, String appName) {
+        return appPath(SystemPath.Location.TEMPORARY, companyName, appType, appName);
+    }
+
+    /**
+     * Build app temporary path with companyName and appName. All of them can be null.<br>
+     * Note: Returned path ends without a file separator.
+     *
+     * @see PathHelper#buildAppTemporaryPath(String, String, String)
+     *
+     * @param companyName company name
+     * @param appName app name
+     * @return built app temporary path
+     */
+    public static String buildAppTemporaryPath(String companyName, String appName) {
+        return buildAppTemporaryPath(companyName, null, appName);
+    }
+
+    /**
+     * Build app temporary path with appName. It can be null.<br>
+     * Note: Returned path ends without a file separator.
+     *
+     * @see PathHelper#buildAppTemporaryPath(String, String, String)
+     *
+     * @param appName app name
+     * @return built app temporary path
+     */
+    public static String buildAppTemporaryPath(String appName) {
+        return buildAppTemporaryPath(null, null, appName);
+    }
+
+    private static final int APP_PATH_CACHE_CAPACITY = 256;
+
+    /**
+     * Built app paths of one {@link SystemPath} generation, replaced as a whole when system paths refresh.
+     */
+    private static final class AppPathCache {
+        final int generation;
+        final ConcurrentHashMap<AppPathKey, String> paths = new ConcurrentHashMap<>();
+        AppPathCache(int generation) {
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Key of built app path. A per-thread instance is reused as lookup probe, so a cache hit allocates nothing.
+     */
+    private static final class AppPathKey {
+        SystemPath.Location location;
+        String companyName;
+        String appType;
+        String appName;
+        int hash;
+
+        AppPathKey set(SystemPath.Location location, String companyName, String appType, String appName) {
+            this.location = location;
+            this.companyName = companyName;
+            this.appType = appType;
+            this.appName = appName;
+            hash = ((location.hashCode() * 31 + Objects.hashCode(companyName)) * 31 + Objects.hashCode(appType)) * 31 + Objects.hashCode(appName);
+            return this;
+        }
+
+        AppPathKey copy() {
+            return new AppPathKey().set(location, companyName, appType, appName);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof AppPathKey)) return false;
+            AppPathKey other = (AppPathKey) object;
+            return location == other.location && Objects.equals(companyName, other.companyName)
+                    && Objects.equals(appType, other.appType) && Objects.equals(appName, other.appName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static volatile AppPathCache appPathCache = new AppPathCache(-1);
+
+    private static final ThreadLocal<AppPathKey> appPathProbe = ThreadLocal.withInitial(AppPathKey::new);
+
+    private static String appPath(SystemPath.Location location, String companyName, String appType, String appName) {
+        int generation = SystemPath.generation();
+        AppPathCache cache = appPathCache;
+        if (cache.generation != generation) appPathCache = cache = new AppPathCache(generation);
+        AppPathKey key = appPathProbe.get().set(location, companyName, appType, appName);
+        String path = cache.paths.get(key);
+        if (path == null) {
+            switch (location) {
+                case DATA:
+                    path = build(SystemPath.userData(), companyName, appType, appName);
+                    break;
+                case CONFIG:
+                    path = build(SystemPath.userConfig(), companyName, appType, appName);
+                    break;
+                case TEMPORARY:
+                    path = build(SystemPath.temporary(), companyName, appType, appName);
+                    break;
+                default:
+                    if (SystemInfo.isWindows()) path = build(SystemPath.userConfig(), companyName, appType, appName, "Cache");
+                    else path = build(SystemPath.userCache(), companyName, appType, appName);
+                    break;
+            }
+            if (cache.paths.size() < APP_PATH_CACHE_CAPACITY) cache.paths.putIfAbsent(key.copy(), path);
+        }
+        return path;
+    }
+
     /**
      * If path ends with a {@link PathHelper#SEPARATOR}, the method will remove it.
      * @param path path to remove separator
@@ -218,13 +362,11 @@ public final class PathHelper {
      */
     public static String removeStartEndSpaces(String path) {
         if (path == null) throw new NullPointerException("Unable to remove space: \npath cannot be null.");
-        while (path.startsWith(" ")) {
-            path = path.substring(1);
-        }
-        while (path.endsWith(" ")) {
-            path = path.substring(0, path.length() - 1);
-        }
-        return path;
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == ' ') start ++;
+        while (end > start && path.charAt(end - 1) == ' ') end --;
+        return path.substring(start, end);
     }
 
     /**
@@ -239,4 +381,90 @@ public final class PathHelper {
         return path;
     }
 
+    /**
+     * Normalize given path lexically, without accessing the file system: collapse duplicate separators, remove "." segments,
+     * resolve ".." segments against preceding ones and convert all separators to {@link PathHelper#SEPARATOR}.<br>
+     * ".." above root of an absolute path is dropped, while leading ".." of a relative path is kept.
+     * On Windows, drive letter (upper-cased) and UNC (\\server\share) prefixes are kept as root.<br>
+     * Note: Unlike {@link java.io.File#getCanonicalPath()}, symbolic links are not resolved, so "a/link/.." becomes "a".<br>
+     * Note: Returned path ends without a file separator unless it is a root, an empty relative path becomes ".".
+     *
+     * @param path path to normalize
+     * @return normalized path
+     */
+    public static String normalize(String path) {
+        return normalize(path, SystemInfo.isWindows(), SEPARATOR.charAt(0));
+    }
+
+    static String normalize(String path, boolean windows, char separator) {
+        if (path == null) throw new NullPointerException("Unable to normalize path: \npath cannot be null.");
+        int length = path.length();
+        char[] result = new char[length + 2];
+        int position = 0;
+        int index = 0;
+        boolean absolute = false;
+        if (windows && length >= 2 && path.charAt(1) == ':' && isDriveLetter(path.charAt(0))) {
+            result[position ++] = Character.toUpperCase(path.charAt(0));
+            result[position ++] = ':';
+            index = 2;
+            if (index < length && isSeparator(path.charAt(index))) {
+                result[position ++] = separator;
+                absolute = true;
+            }
+        }
+        else if (windows && length >= 2 && isSeparator(path.charAt(0)) && isSeparator(path.charAt(1))) {
+            result[position ++] = separator;
+            result[position ++] = separator;
+            index = 2;
+            // Server and share names belong to root
+            for (int component = 0; component < 2; component ++) {
+                while (index < length && isSeparator(path.charAt(index))) index ++;
+                if (index == length) break;
+                while (index < length && !isSeparator(path.charAt(index))) result[position ++] = path.charAt(index ++);
+                result[position ++] = separator;
+            }
+            absolute = true;
+        }
+        else if (length > 0 && isSeparator(path.charAt(0))) {
+            result[position ++] = separator;
+            absolute = true;
+        }
+        int root = position;
+        int[] starts = new int[length / 2 + 1];
+        int depth = 0;
+        while (index < length) {
+            while (index < length && isSeparator(path.charAt(index))) index ++;
+            int start = index;
+            while (index < length && !isSeparator(path.charAt(index))) index ++;
+            int segmentLength = index - start;
+            if (segmentLength == 0 || (segmentLength == 1 && path.charAt(start) == '.')) continue;
+            boolean parent = segmentLength == 2 && path.charAt(start) == '.' && path.charAt(start + 1) == '.';
+            if (parent) {
+                if (depth > 0) {
+                    position = starts[-- depth];
+                    continue;
+                }
+                if (absolute) continue;
+            }
+            int segmentStart = position;
+            if (position > root && result[position - 1] != separator) result[position ++] = separator;
+            path.getChars(start, index, result, position);
+            position += segmentLength;
+            // Kept leading ".." can never be popped
+            if (!parent) starts[depth ++] = segmentStart;
+        }
+        if (position == 0) return ".";
+        // UNC root ends without a separator
+        if (position == root && root > 2 && result[1] == separator) position --;
+        return new String(result, 0, position);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '/' || c == '\\';
+    }
+
+    private static boolean isDriveLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
 }
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Path builder bound to a base path, which is validated and normalized once, so that building large numbers of paths under the same
+ * directory only processes the child segments. Also builds sharded layouts like "base/ab/cd/abcdef".<br>
+ * Instances are immutable and thread-safe.
+ * @see PathHelper#under(String...)
+ */
+public final class PathPrefix {
+
+    private static final char SEPARATOR = PathHelper.SEPARATOR.charAt(0);
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<PathBuilder> BUILDER = ThreadLocal.withInitial(PathBuilder::new);
+    private static final ThreadLocal<char[]> SHARD_BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+
+    private final String prefix;
+    private final boolean endsWithSeparator;
+
+    PathPrefix(String base) {
+        if (base.isEmpty()) throw new IllegalArgumentException("Unable to create path prefix: \nbase cannot be empty.");
+        prefix = PathHelper.normalize(base);
+        endsWithSeparator = prefix.charAt(prefix.length() - 1) == SEPARATOR;
+    }
+
+    /**
+     * Gets the normalized base path.<br>
+     * Note: Returned path ends without a file separator unless it is a root.
+     *
+     * @return base path
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Build child path under base, children are processed as {@link PathHelper#build(String...)} does.<br>
+     * Note: Children are not normalized, ".." segments may escape the base.
+     *
+     * @param children child segments
+     * @return built path
+     */
+    public String resolve(String... children) {
+        if (children == null) throw new NullPointerException("Unable to resolve path: \nchildren cannot be null.");
+        return BUILDER.get().reset().appendNormalized(prefix).append(children).toString();
+    }
+
+    /**
+     * Build child path under base as {@link Path}.
+     * @see PathPrefix#resolve(String...)
+     *
+     * @param children child segments
+     * @return built path
+     */
+    public Path resolvePath(String... children) {
+        return Paths.get(resolve(children));
+    }
+
+    /**
+     * Build sharded path of name under base, made of levels of directories named with the next width chars of name, then name itself.
+     * e.g. "abcdef" with 2 levels of width 2 gives "base/ab/cd/abcdef".
+     *
+     * @param name file name, usually a hex digest, must not contain separators
+     * @param levels count of directory levels
+     * @param width count of chars per directory name
+     * @return sharded path
+     */
+    public String shard(String name, int levels, int width) {
+        if (name == null) throw new NullPointerException("Unable to build sharded path: \nname cannot be null.");
+        if (levels < 0 || width < 1) throw new IllegalArgumentException("Unable to build sharded path: \ninvalid levels or width.");
+        int nameLength = name.length();
+        if (nameLength < levels * width) throw new IllegalArgumentException("Unable to build sharded path: \nname shorter than levels * width.");
+        char[] buffer = shardBuffer(levels * (width + 1) + nameLength + 1);
+        int position = writePrefix(buffer);
+        for (int level = 0; level < levels; level ++) {
+            name.getChars(level * width, level * width + width, buffer, position);
+            position += width;
+            buffer[position ++] = SEPARATOR;
+        }
+        for (int i = 0; i < nameLength; i ++) {
+            char c = name.charAt(i);
+            if (c == '/' || c == '\\') throw new IllegalArgumentException("Unable to build sharded path: \nname cannot contain separators.");
+            buffer[position ++] = c;
+        }
+        return new String(buffer, 0, position);
+    }
+
+    /**
+     * Build sharded paths of names lazily, one per name.
+     * @see PathPrefix#shard(String, int, int)
+     *
+     * @param names file names
+     * @param levels count of directory levels
+     * @param width count of chars per directory name
+     * @return stream of sharded paths, in order of names
+     */
+    public Stream<String> shard(Stream<String> names, int levels, int width) {
+        if (names == null) throw new NullPointerException("Unable to build sharded paths: \nnames cannot be null.");
+        return names.map(name -> shard(name, levels, width));
+    }
+
+    /**
+     * Build all directory paths of a hex sharded layout lazily, in ascending order, e.g. "base/00/00" to "base/ff/ff" for 2 levels of width 2.
+     *
+     * @param levels count of directory levels
+     * @param width count of hex chars per directory name
+     * @return stream of 16^(levels * width) directory paths
+     */
+    public Stream<String> shardDirectories(int levels, int width) {
+        if (levels < 1 || width < 1 || levels * width > 7) throw new IllegalArgumentException("Unable to build shard directories: \ninvalid levels or width.");
+        int digits = levels * width;
+        return IntStream.range(0, 1 << (4 * digits)).mapToObj(index -> {
+            char[] buffer = shardBuffer(levels * (width + 1));
+            int position = writePrefix(buffer);
+            for (int digit = 0; digit < digits; digit ++) {
+                if (digit > 0 && digit % width == 0) buffer[position ++] = SEPARATOR;
+                buffer[position ++] = HEX_DIGITS[(index >>> (4 * (digits - 1 - digit))) & 0xF];
+            }
+            return new String(buffer, 0, position);
+        });
+    }
+
+    @Override
+    public String toString() {
+        return prefix;
+    }
+
+    private char[] shardBuffer(int extra) {
+        char[] buffer = SHARD_BUFFER.get();
+        int capacity = prefix.length() + extra;
+        if (buffer.length < capacity) {
+            buffer = new char[Math.max(capacity, buffer.length * 2)];
+            SHARD_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    private int writePrefix(char[] buffer) {
+        int position = prefix.length();
+        prefix.getChars(0, position, buffer, 0);
+        if (!endsWithSeparator) buffer[position ++] = SEPARATOR;
+        return position;
+    }
+
+}
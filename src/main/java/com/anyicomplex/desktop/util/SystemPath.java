@@ -25,22 +25,58 @@
 
 package com.anyicomplex.desktop.util;
 
+import java.util.Arrays;
+import java.util.function.Function;
+
 /**
- * Simple utility class that provides system pre-defined paths.
+ * Simple utility class that provides system pre-defined paths.<br>
+ * Paths are resolved once and cached, call {@link SystemPath#refresh()} after environment changes,
+ * or {@link SystemPath#override(Location, String)} to replace a path, e.g. in tests and containers.
  */
 public final class SystemPath {
 
     private SystemPath(){}
 
+    /**
+     * System pre-defined path locations.
+     */
+    public enum Location {
+        HOME,
+        DATA,
+        CONFIG,
+        CACHE,
+        TEMPORARY
+    }
+
+    private static final Location[] LOCATIONS = Location.values();
+
+    private static final Object LOCK = new Object();
+    private static Function<String, String> environment = System::getenv;
+    private static final String[] overrides = new String[LOCATIONS.length];
+
+    /**
+     * Immutable snapshot of resolved paths, replaced as a whole so readers need no lock.
+     */
+    private static final class Resolved {
+        final String[] paths;
+        final IllegalStateException[] errors;
+        final int generation;
+        Resolved(String[] paths, IllegalStateException[] errors, int generation) {
+            this.paths = paths;
+            this.errors = errors;
+            this.generation = generation;
+        }
+    }
+
+    private static volatile Resolved resolved;
+
     /**
      * Gets user home dir path.<br>
      * Note: Returned path ends without a file separator.
      * @return user home dir path
      */
     public static String userHome() {
-        String result = System.getProperty("user.home");
-        if (result == null) throw new IllegalStateException("Unable to get user home path: \nUnknown error.");
-        return PathHelper.removeSeparatorAtEnd(result);
+        return get(Location.HOME);
     }
 
     /**
@@ -49,17 +85,166 @@ public final class SystemPath {
      * @return user data dir path
      */
     public static String userData() {
+        return get(Location.DATA);
+    }
+
+    /**
+     * Gets user space application config dir path.<br>
+     * Note: On Windows XP and older Windows, it will return the same path of {@link SystemPath#userData()}.<br>
+     * Note: Returned path ends without a file separator.
+     * @return user config dir path
+     */
+    public static String userConfig() {
+        return get(Location.CONFIG);
+    }
+
+    /**
+     * Gets user space application cache dir path.<br>
+     * Note: On Windows, it will return the same path of {@link SystemPath#userConfig()}.<br>
+     * Note: Returned path ends without a file separator.
+     * @return user cache dir path
+     */
+    public static String userCache() {
+        return get(Location.CACHE);
+    }
+
+    /**
+     * Gets system temporary dir path.<br>
+     * Note: Returned path ends without a file separator.
+     * @return system temporary dir path
+     */
+    public static String temporary() {
+        return get(Location.TEMPORARY);
+    }
+
+    /**
+     * Gets path of given location, resolved once and cached.
+     *
+     * @param location path location
+     * @return location path
+     */
+    public static String get(Location location) {
+        if (location == null) throw new NullPointerException("Unable to get path: \nlocation cannot be null.");
+        Resolved current = resolved;
+        if (current == null) current = initialize();
+        String path = current.paths[location.ordinal()];
+        if (path == null) throw current.errors[location.ordinal()];
+        return path;
+    }
+
+    /**
+     * Resolve all paths again, e.g. after system properties or environment lookup changed.
+     */
+    public static void refresh() {
+        synchronized (LOCK) {
+            resolved = resolve(resolved == null ? 0 : resolved.generation + 1);
+        }
+    }
+
+    /**
+     * Override path of given location, paths derived from {@link Location#HOME} follow its override.
+     *
+     * @param location path location
+     * @param path path to use, or null to remove override
+     */
+    public static void override(Location location, String path) {
+        if (location == null) throw new NullPointerException("Unable to override path: \nlocation cannot be null.");
+        synchronized (LOCK) {
+            overrides[location.ordinal()] = path == null ? null : PathHelper.removeSeparatorAtEnd(path);
+            refresh();
+        }
+    }
+
+    /**
+     * Remove all path overrides.
+     */
+    public static void clearOverrides() {
+        synchronized (LOCK) {
+            Arrays.fill(overrides, null);
+            refresh();
+        }
+    }
+
+    /**
+     * Set function used to look up environment variables, e.g. to simulate a container environment.
+     *
+     * @param environment environment lookup, or null to use {@link System#getenv(String)}
+     */
+    public static void setEnvironment(Function<String, String> environment) {
+        synchronized (LOCK) {
+            SystemPath.environment = environment == null ? System::getenv : environment;
+            refresh();
+        }
+    }
+
+    /**
+     * Gets count of refreshes, for caches of paths derived from system paths.
+     *
+     * @return generation of resolved paths
+     */
+    static int generation() {
+        Resolved current = resolved;
+        if (current == null) current = initialize();
+        return current.generation;
+    }
+
+    private static Resolved initialize() {
+        synchronized (LOCK) {
+            if (resolved == null) resolved = resolve(0);
+            return resolved;
+        }
+    }
+
+    private static Resolved resolve(int generation) {
+        String[] paths = new String[LOCATIONS.length];
+        IllegalStateException[] errors = new IllegalStateException[LOCATIONS.length];
+        for (Location location : LOCATIONS) {
+            int index = location.ordinal();
+            paths[index] = overrides[index];
+            if (paths[index] != null) continue;
+            // Keep failure of one location from affecting others, it is thrown on access
+            try {
+                paths[index] = resolve(location, paths[Location.HOME.ordinal()]);
+            }
+            catch (IllegalStateException e) {
+                errors[index] = e;
+            }
+        }
+        return new Resolved(paths, errors, generation);
+    }
+
+    private static String resolve(Location location, String home) {
+        if (location == Location.HOME) return resolveUserHome();
+        if (location == Location.TEMPORARY) return resolveTemporary();
+        if (home == null) throw new IllegalStateException("Unable to get user home path: \nUnknown error.");
+        switch (location) {
+            case DATA:
+                return resolveUserData(home);
+            case CONFIG:
+                return resolveUserConfig(home);
+            default:
+                return resolveUserCache(home);
+        }
+    }
+
+    private static String resolveUserHome() {
+        String result = System.getProperty("user.home");
+        if (result == null) throw new IllegalStateException("Unable to get user home path: \nUnknown error.");
+        return PathHelper.removeSeparatorAtEnd(result);
+    }
+
+    private static String resolveUserData(String home) {
         String result;
         switch (SystemInfo.getSystemType()) {
             case WINDOWS:
-                result = System.getenv("APPDATA");
+                result = environment.apply("APPDATA");
                 if (result == null) {
                     float version = Float.parseFloat(SystemInfo.VERSION);
                     if (version > 5.2) {
-                        result = userHome() + "\\AppData\\Roaming";
+                        result = home + "\\AppData\\Roaming";
                     }
                     else {
-                        result = userHome() + "\\Application Data";
+                        result = home + "\\Application Data";
                     }
                 }
                 break;
@@ -67,11 +252,11 @@ public final class SystemPath {
             case SOLARIS:
             case AIX:
             case OTHER_UNIX:
-                result = System.getenv("XDG_DATA_HOME");
-                if (result == null) result = userHome() + "/.local/share";
+                result = environment.apply("XDG_DATA_HOME");
+                if (result == null) result = home + "/.local/share";
                 break;
             case MAC:
-                result = userHome() + "/Library/Application Support";
+                result = home + "/Library/Application Support";
                 break;
             default:
                 throw new IllegalStateException("Unable to get user data path: \nUnsupported platform.");
@@ -79,25 +264,19 @@ public final class SystemPath {
         return result;
     }
 
-    /**
-     * Gets user space application config dir path.<br>
-     * Note: On Windows XP and older Windows, it will return the same path of {@link SystemPath#userData()}.<br>
-     * Note: Returned path ends without a file separator.
-     * @return user config dir path
-     */
-    public static String userConfig() {
+    private static String resolveUserConfig(String home) {
         String result;
         switch (SystemInfo.getSystemType()) {
             case WINDOWS:
-                result = System.getenv("LOCALAPPDATA");
-                if (result == null) result = System.getenv("APPDATA");
+                result = environment.apply("LOCALAPPDATA");
+                if (result == null) result = environment.apply("APPDATA");
                 if (result == null) {
                     float version = Float.parseFloat(SystemInfo.VERSION);
                     if (version > 5.2) {
-                        result = userHome() + "\\AppData\\Local";
+                        result = home + "\\AppData\\Local";
                     }
                     else {
-                        result = userHome() + "\\Application Data";
+                        result = home + "\\Application Data";
                     }
                 }
                 break;
@@ -105,11 +284,11 @@ public final class SystemPath {
             case SOLARIS:
             case AIX:
             case OTHER_UNIX:
-                result = System.getenv("XDG_CONFIG_HOME");
-                if (result == null) result = userHome() + "/.config";
+                result = environment.apply("XDG_CONFIG_HOME");
+                if (result == null) result = home + "/.config";
                 break;
             case MAC:
-                result = userHome() + "/Library/Preferences";
+                result = home + "/Library/Preferences";
                 break;
             default:
                 throw new IllegalStateException("Unable to get user config path: \nUnsupported platform.");
@@ -117,25 +296,19 @@ public final class SystemPath {
         return result;
     }
 
-    /**
-     * Gets user space application cache dir path.<br>
-     * Note: On Windows, it will return the same path of {@link SystemPath#userConfig()}.<br>
-     * Note: Returned path ends without a file separator.
-     * @return user cache dir path
-     */
-    public static String userCache() {
+    private static String resolveUserCache(String home) {
         String result;
         switch (SystemInfo.getSystemType()) {
             case WINDOWS:
-                result = System.getenv("LOCALAPPDATA");
-                if (result == null) result = System.getenv("APPDATA");
+                result = environment.apply("LOCALAPPDATA");
+                if (result == null) result = environment.apply("APPDATA");
                 if (result == null) {
                     float version = Float.parseFloat(SystemInfo.VERSION);
                     if (version > 5.2) {
-                        result = userHome() + "\\AppData\\Local";
+                        result = home + "\\AppData\\Local";
                     }
                     else {
-                        result = userHome() + "\\Application Data";
+                        result = home + "\\Application Data";
                     }
                 }
                 break;
@@ -143,11 +316,11 @@ public final class SystemPath {
             case SOLARIS:
             case AIX:
             case OTHER_UNIX:
-                result = System.getenv("XDG_CACHE_HOME");
-                if (result == null) result = userHome() + "/.cache";
+                result = environment.apply("XDG_CACHE_HOME");
+                if (result == null) result = home + "/.cache";
                 break;
             case MAC:
-                result = userHome() + "/Library/Caches";
+                result = home + "/Library/Caches";
                 break;
             default:
                 throw new IllegalStateException("Unable to get user cache path: \nUnsupported platform.");
@@ -155,12 +328,7 @@ public final class SystemPath {
         return result;
     }
 
-    /**
-     * Gets system temporary dir path.<br>
-     * Note: Returned path ends without a file separator.
-     * @return system temporary dir path
-     */
-    public static String temporary() {
+    private static String resolveTemporary() {
         String result = System.getProperty("java.io.tmpdir");
         if (result == null) throw new IllegalStateException("Unable to get temporary dir path: \nUnknown error.");
         return PathHelper.removeSeparatorAtEnd(result);
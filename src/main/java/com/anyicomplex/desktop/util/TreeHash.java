@@ -0,0 +1,345 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Chunked tree hash (Merkle tree) of a file. The file is split into fixed-size leaves which are hashed in parallel,
+ * then leaf digests are combined pairwise into a root digest.<br>
+ * Note: Leaves are hashed as H(0x00 || data) and inner nodes as H(0x01 || left || right), an unpaired node is promoted as is.
+ * @see MessageDigestHelper
+ */
+public final class TreeHash {
+
+    /**
+     * Default leaf size, 4 MiB.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    /**
+     * Leaf ranges hashed by a single task without further splitting.
+     */
+    private static final int LEAVES_PER_TASK = 1;
+
+    private final String type;
+    private final int chunkSize;
+    private final long fileSize;
+    private final byte[][] leaves;
+    private final byte[] root;
+
+    private TreeHash(String type, int chunkSize, long fileSize, byte[][] leaves) {
+        this.type = type;
+        this.chunkSize = chunkSize;
+        this.fileSize = fileSize;
+        this.leaves = leaves;
+        this.root = combine(type, leaves);
+    }
+
+    /**
+     * Compute tree hash of file with {@link TreeHash#DEFAULT_CHUNK_SIZE} on common fork-join pool.
+     * @see TreeHash#compute(String, Path, int, int)
+     *
+     * @param type hash type
+     * @param path the input file
+     * @return tree hash
+     * @throws IOException if an I/O error occurs
+     */
+    public static TreeHash compute(String type, Path path) throws IOException {
+        return compute(type, path, DEFAULT_CHUNK_SIZE, 0);
+    }
+
+    /**
+     * Compute tree hash of file.
+     *
+     * @param type hash type
+     * @param path the input file
+     * @param chunkSize leaf size in bytes, must be positive
+     * @param parallelism count of threads hashing leaves, 0 or negative to use {@link ForkJoinPool#commonPool()}
+     * @return tree hash
+     * @throws IOException if an I/O error occurs
+     */
+    public static TreeHash compute(String type, Path path, int chunkSize, int parallelism) throws IOException {
+        if (type == null) throw new NullPointerException("Unable to compute tree hash: \ntype cannot be null.");
+        if (path == null) throw new NullPointerException("Unable to compute tree hash: \npath cannot be null.");
+        if (chunkSize <= 0) throw new IllegalArgumentException("Unable to compute tree hash: \nchunkSize must be positive.");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            byte[][] leaves = new byte[leafCount(fileSize, chunkSize)][];
+            hashLeaves(type, channel, fileSize, chunkSize, leaves, allIndexes(leaves.length), parallelism);
+            return new TreeHash(type, chunkSize, fileSize, leaves);
+        }
+    }
+
+    /**
+     * Restore a tree hash from leaf digests stored before, e.g. to compare with or {@link TreeHash#rehash(Path, long, long, int)} later.
+     *
+     * @param type hash type
+     * @param chunkSize leaf size in bytes
+     * @param fileSize size of file when leaves were computed
+     * @param leaves leaf digests
+     * @return tree hash
+     */
+    public static TreeHash of(String type, int chunkSize, long fileSize, byte[][] leaves) {
+        if (type == null) throw new NullPointerException("Unable to restore tree hash: \ntype cannot be null.");
+        if (leaves == null) throw new NullPointerException("Unable to restore tree hash: \nleaves cannot be null.");
+        if (chunkSize <= 0) throw new IllegalArgumentException("Unable to restore tree hash: \nchunkSize must be positive.");
+        if (leaves.length != leafCount(fileSize, chunkSize))
+            throw new IllegalArgumentException("Unable to restore tree hash: \nleaf count does not match file size.");
+        byte[][] copy = new byte[leaves.length][];
+        for (int i = 0; i < leaves.length; i ++) copy[i] = leaves[i].clone();
+        return new TreeHash(type, chunkSize, fileSize, copy);
+    }
+
+    /**
+     * Re-hash only leaves overlapping the changed range of file and returns the new tree hash, other leaves are reused.<br>
+     * Note: If file size changed, the last old leaf and all new leaves will be re-hashed as well.
+     *
+     * @param path the file
+     * @param offset start of changed range
+     * @param length length of changed range
+     * @param parallelism count of threads hashing leaves, 0 or negative to use {@link ForkJoinPool#commonPool()}
+     * @return updated tree hash
+     * @throws IOException if an I/O error occurs
+     */
+    public TreeHash rehash(Path path, long offset, long length, int parallelism) throws IOException {
+        if (path == null) throw new NullPointerException("Unable to rehash: \npath cannot be null.");
+        if (offset < 0 || length < 0) throw new IllegalArgumentException("Unable to rehash: \noffset and length cannot be negative.");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long newSize = channel.size();
+            int count = leafCount(newSize, chunkSize);
+            byte[][] newLeaves = Arrays.copyOf(leaves, count);
+            List<Integer> dirty = new ArrayList<>();
+            int first = (int) Math.min(offset / chunkSize, count);
+            int last = length == 0 ? first - 1 : (int) Math.min((offset + length - 1) / chunkSize, count - 1);
+            for (int i = first; i <= last; i ++) dirty.add(i);
+            if (newSize != fileSize) {
+                int from = Math.max(0, Math.min(leaves.length, count) - 1);
+                for (int i = from; i < count; i ++) if (i < first || i > last) dirty.add(i);
+            }
+            int[] indexes = new int[dirty.size()];
+            for (int i = 0; i < indexes.length; i ++) indexes[i] = dirty.get(i);
+            hashLeaves(type, channel, newSize, chunkSize, newLeaves, indexes, parallelism);
+            return new TreeHash(type, chunkSize, newSize, newLeaves);
+        }
+    }
+
+    /**
+     * Gets indexes of leaves that differ from other tree hash. Leaves existing in only one of them count as different.
+     *
+     * @param other tree hash to compare
+     * @return indexes of changed leaves
+     */
+    public int[] diff(TreeHash other) {
+        if (other == null) throw new NullPointerException("Unable to diff: \nother cannot be null.");
+        if (!type.equals(other.type) || chunkSize != other.chunkSize)
+            throw new IllegalArgumentException("Unable to diff: \nhash type and chunk size must be the same.");
+        int max = Math.max(leaves.length, other.leaves.length);
+        int min = Math.min(leaves.length, other.leaves.length);
+        int[] result = new int[max];
+        int count = 0;
+        for (int i = 0; i < max; i ++) {
+            if (i >= min || !MessageDigest.isEqual(leaves[i], other.leaves[i])) result[count ++] = i;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Gets root digest.
+     * @return root digest
+     */
+    public byte[] getRoot() {
+        return root.clone();
+    }
+
+    /**
+     * Gets digest of leaf at index.
+     * @param index leaf index
+     * @return leaf digest
+     */
+    public byte[] getLeaf(int index) {
+        return leaves[index].clone();
+    }
+
+    /**
+     * Gets copy of all leaf digests, in file order.
+     * @return leaf digests
+     */
+    public byte[][] getLeaves() {
+        byte[][] copy = new byte[leaves.length][];
+        for (int i = 0; i < leaves.length; i ++) copy[i] = leaves[i].clone();
+        return copy;
+    }
+
+    /**
+     * Gets count of leaves.
+     * @return leaf count
+     */
+    public int getLeafCount() {
+        return leaves.length;
+    }
+
+    /**
+     * Gets hash type.
+     * @return hash type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets leaf size in bytes.
+     * @return chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Gets size of hashed file.
+     * @return file size
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    private static int leafCount(long fileSize, int chunkSize) {
+        if (fileSize < 0) throw new IllegalArgumentException("Unable to compute tree hash: \nfileSize cannot be negative.");
+        long count = Math.max(1, (fileSize + chunkSize - 1) / chunkSize);
+        if (count > Integer.MAX_VALUE) throw new IllegalArgumentException("Unable to compute tree hash: \nchunkSize too small for file.");
+        return (int) count;
+    }
+
+    private static int[] allIndexes(int count) {
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i ++) indexes[i] = i;
+        return indexes;
+    }
+
+    private static void hashLeaves(String type, FileChannel channel, long fileSize, int chunkSize,
+                                   byte[][] leaves, int[] indexes, int parallelism) throws IOException {
+        if (indexes.length == 0) return;
+        LeafTask task = new LeafTask(type, channel, fileSize, chunkSize, leaves, indexes, 0, indexes.length);
+        ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+        try {
+            pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) pool.shutdown();
+        }
+    }
+
+    private static byte[] combine(String type, byte[][] leaves) {
+        byte[][] level = leaves;
+        if (level.length == 1) return level[0].clone();
+        MessageDigest digest = MessageDigestHelper.obtain(type);
+        try {
+            while (level.length > 1) {
+                byte[][] next = new byte[(level.length + 1) / 2][];
+                for (int i = 0; i < next.length; i ++) {
+                    int left = i * 2;
+                    if (left + 1 >= level.length) {
+                        next[i] = level[left];
+                        continue;
+                    }
+                    digest.update(NODE_PREFIX);
+                    digest.update(level[left]);
+                    digest.update(level[left + 1]);
+                    next[i] = digest.digest();
+                }
+                level = next;
+            }
+        } finally {
+            MessageDigestHelper.free(digest);
+        }
+        return level[0];
+    }
+
+    private static final class LeafTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+        private final FileChannel channel;
+        private final long fileSize;
+        private final int chunkSize;
+        private final byte[][] leaves;
+        private final int[] indexes;
+        private final int from;
+        private final int to;
+
+        LeafTask(String type, FileChannel channel, long fileSize, int chunkSize, byte[][] leaves, int[] indexes, int from, int to) {
+            this.type = type;
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.chunkSize = chunkSize;
+            this.leaves = leaves;
+            this.indexes = indexes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAVES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LeafTask(type, channel, fileSize, chunkSize, leaves, indexes, from, middle),
+                        new LeafTask(type, channel, fileSize, chunkSize, leaves, indexes, middle, to));
+                return;
+            }
+            MessageDigest digest = MessageDigestHelper.obtain(type);
+            try {
+                for (int i = from; i < to; i ++) {
+                    int index = indexes[i];
+                    long position = (long) index * chunkSize;
+                    digest.update(LEAF_PREFIX);
+                    MessageDigestHelper.update(digest, channel, position, Math.min(chunkSize, fileSize - position));
+                    leaves[index] = digest.digest();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                MessageDigestHelper.free(digest);
+            }
+        }
+
+    }
+
+}
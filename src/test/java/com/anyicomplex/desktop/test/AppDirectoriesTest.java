@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.AppDirectories;
+import com.anyicomplex.desktop.util.PathPrefix;
+import com.anyicomplex.desktop.util.SystemPath;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class AppDirectoriesTest {
+
+    public static void main(String[] args) {
+        Path root = null;
+        try {
+            root = Files.createTempDirectory("AppDirectoriesTest");
+            SystemPath.override(SystemPath.Location.DATA, root.resolve("data").toString());
+            SystemPath.override(SystemPath.Location.CONFIG, root.resolve("config").toString());
+            SystemPath.override(SystemPath.Location.CACHE, root.resolve("cache").toString());
+            SystemPath.override(SystemPath.Location.TEMPORARY, root.resolve("temporary").toString());
+            AppDirectories directories = new AppDirectories("anyicomplex", "AppDirectoriesTest");
+            Check.isTrue("under root", directories.data().startsWith(root) && directories.temporary().startsWith(root));
+            directories.provisionAll();
+            checkProvisioned(directories);
+            PathPrefix shards = directories.shards(SystemPath.Location.TEMPORARY, "objects", 1, 2);
+            Check.equal("shard", directories.temporary().resolve("objects").resolve("ab").resolve("abcdef").toString(), shards.shard("abcdef", 1, 2));
+            checkShards(directories, shards);
+            Check.isTrue("same shards", shards == directories.shards(SystemPath.Location.TEMPORARY, "objects", 1, 2));
+            Check.isTrue("other levels", shards != directories.shards(SystemPath.Location.TEMPORARY, "objects", 2, 1));
+            Check.isTrue("other location", shards != directories.shards(SystemPath.Location.CACHE, "objects", 1, 2));
+            Check.isTrue("null child", directories.shards(SystemPath.Location.CACHE, null, 1, 1)
+                    == directories.shards(SystemPath.Location.CACHE, null, 1, 1));
+            delete(root.resolve("data"));
+            delete(root.resolve("temporary"));
+            directories.reset();
+            checkProvisioned(directories);
+            checkShards(directories, directories.shards(SystemPath.Location.TEMPORARY, "objects", 1, 2));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            SystemPath.clearOverrides();
+            if (root != null) {
+                try {
+                    delete(root);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void checkProvisioned(AppDirectories directories) throws IOException {
+        Check.isTrue("data dir", Files.isDirectory(directories.data()));
+        Check.isTrue("config dir", Files.isDirectory(directories.config()));
+        Check.isTrue("cache dir", Files.isDirectory(directories.cache()));
+        Check.isTrue("temporary dir", Files.isDirectory(directories.temporary()));
+    }
+
+    private static void checkShards(AppDirectories directories, PathPrefix shards) throws IOException {
+        Check.isTrue("shard dir", Files.isDirectory(Paths.get(shards.shard("abcdef", 1, 2)).getParent()));
+        try (Stream<Path> children = Files.list(directories.temporary().resolve("objects"))) {
+            Check.equal("shard dirs", 256L, children.filter(Files::isDirectory).count());
+        }
+    }
+
+    private static void delete(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(path);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.HexCodec;
+
+import java.util.Objects;
+
+/**
+ * Print-style test checks that also fail the test run on mismatch.
+ */
+final class Check {
+
+    private Check(){}
+
+    static void equal(String name, Object expected, Object actual) {
+        String text = toString(actual);
+        System.out.println(name + ": " + text);
+        if (!Objects.deepEquals(expected, actual)) throw new AssertionError(name + ": expected " + toString(expected) + " but was " + text);
+    }
+
+    private static String toString(Object value) {
+        return value instanceof byte[] ? HexCodec.encode((byte[]) value) : String.valueOf(value);
+    }
+
+    static void isTrue(String name, boolean condition) {
+        equal(name, true, condition);
+    }
+
+    interface Action {
+        void run() throws Exception;
+    }
+
+    static void raises(String name, Class<? extends Throwable> type, Action action) {
+        try {
+            action.run();
+        }
+        catch (Throwable e) {
+            if (type.isInstance(e)) {
+                System.out.println(name + ": " + e.getClass().getSimpleName());
+                return;
+            }
+            throw new AssertionError(name + ": expected " + type.getSimpleName() + " but was " + e, e);
+        }
+        throw new AssertionError(name + ": expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.ChecksumVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ChecksumVerifierTest {
+
+    private static final String SHA256_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private static final String SHA256_EMPTY = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final String MD5_ABC = "900150983cd24fb0d6963f7d28e17f72";
+
+    public static void main(String[] args) {
+        Path root = null;
+        try {
+            root = Files.createTempDirectory("ChecksumVerifierTest");
+            TestFiles.write(root.resolve("abc.txt"), "abc".getBytes(StandardCharsets.US_ASCII));
+            TestFiles.write(root.resolve("sub").resolve("empty.txt"), new byte[0]);
+            TestFiles.write(root.resolve("a b.txt"), "abc".getBytes(StandardCharsets.US_ASCII));
+            Path manifest = root.resolve("SHA256SUMS");
+            Files.write(manifest, ("# comment\n\n" + SHA256_ABC + "  abc.txt\n" + MD5_ABC.toUpperCase() + " *abc.txt\n"
+                    + SHA256_EMPTY + "  sub/empty.txt\n").getBytes(StandardCharsets.UTF_8));
+            ChecksumVerifier.Result result = ChecksumVerifier.verify(manifest);
+            Check.isTrue("valid manifest", result.isSuccess());
+            Check.equal("valid count", 3, result.getVerified());
+            Files.write(manifest, (SHA256_ABC + "  abc.txt\n" + SHA256_EMPTY + "  a b.txt\n" + SHA256_ABC + "  missing.txt\n"
+                    + SHA256_EMPTY + "  sub/empty.txt\n").getBytes(StandardCharsets.UTF_8));
+            AtomicInteger errors = new AtomicInteger();
+            result = ChecksumVerifier.verify(manifest, null, 2, false, (file, matched, error) -> {
+                if (error != null) errors.incrementAndGet();
+            });
+            List<String> failures = new ArrayList<>();
+            for (Path failure : result.getFailures()) failures.add(failure.getFileName().toString());
+            Collections.sort(failures);
+            Check.equal("failures", "[a b.txt, missing.txt]", failures.toString());
+            Check.equal("verified with failures", 4, result.getVerified());
+            Check.equal("read errors", 1, errors.get());
+            result = ChecksumVerifier.verify(manifest, null, 1, true, null);
+            Check.isTrue("stopped on first failure", result.isStopped() && !result.isSuccess() && result.getVerified() < 4);
+            Files.write(manifest, "not a manifest line\n".getBytes(StandardCharsets.UTF_8));
+            Path malformed = manifest;
+            Check.raises("malformed manifest", IOException.class, () -> ChecksumVerifier.verify(malformed));
+            Files.write(manifest, (SHA256_ABC + "  abc.txt\n" + SHA256_EMPTY + "  sub/empty.txt\n").getBytes(StandardCharsets.UTF_8));
+            Path valid = manifest;
+            Check.raises("unsupported type", IllegalArgumentException.class, () -> ChecksumVerifier.verify(valid, "SHA3-999", 1, false, null));
+            ChecksumVerifier.Listener throwing = (file, matched, error) -> {
+                throw new IllegalStateException("listener failed");
+            };
+            result = ChecksumVerifier.verify(manifest, null, 2, false, throwing);
+            Check.isTrue("throwing listener fails", !result.isSuccess() && result.getFailures().size() == 2 && result.getVerified() == 2);
+            result = ChecksumVerifier.verify(manifest, null, 1, true, throwing);
+            Check.isTrue("throwing listener stops", result.isStopped() && !result.isSuccess());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                TestFiles.delete(root);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
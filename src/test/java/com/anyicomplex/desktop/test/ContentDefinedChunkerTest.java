@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.ContentDefinedChunker;
+import com.anyicomplex.desktop.util.MessageDigestHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class ContentDefinedChunkerTest {
+
+    /**
+     * Length of first chunk of the seeded test data with default sizes, changes if the Gear table or cut rule changes.
+     */
+    private static final int FIRST_BOUNDARY = 9290;
+
+    public static void main(String[] args) {
+        Path root = null;
+        try {
+            byte[] data = new byte[1024 * 1024];
+            new Random(1).nextBytes(data);
+            ContentDefinedChunker chunker = new ContentDefinedChunker(MessageDigestHelper.HashType.SHA256);
+            List<ContentDefinedChunker.Chunk> chunks = chunk(chunker, data);
+            long offset = 0;
+            boolean sized = true;
+            boolean digested = true;
+            for (int i = 0; i < chunks.size(); i ++) {
+                ContentDefinedChunker.Chunk chunk = chunks.get(i);
+                sized &= chunk.getOffset() == offset && chunk.getLength() <= chunker.getMaxSize()
+                        && (chunk.getLength() >= chunker.getMinSize() || i == chunks.size() - 1);
+                byte[] content = Arrays.copyOfRange(data, (int) offset, (int) offset + chunk.getLength());
+                digested &= Arrays.equals(MessageDigest.getInstance("SHA-256").digest(content), chunk.getDigest());
+                offset += chunk.getLength();
+            }
+            Check.isTrue("chunks contiguous and sized", sized && offset == data.length);
+            Check.isTrue("chunk digests", digested);
+            Check.equal("first boundary", FIRST_BOUNDARY, chunks.get(0).getLength());
+            root = Files.createTempDirectory("ContentDefinedChunkerTest");
+            Path file = TestFiles.write(root.resolve("data.bin"), data);
+            Check.isTrue("file chunks same as stream chunks", ends(chunks, 0).equals(ends(chunker.chunk(file), 0)));
+            byte[] inserted = new byte[data.length + 100];
+            System.arraycopy(data, 0, inserted, 100, data.length);
+            List<ContentDefinedChunker.Chunk> shifted = chunk(chunker, inserted);
+            Set<Long> before = new HashSet<>(ends(chunks, 100));
+            int kept = 0;
+            for (long end : ends(shifted, 0)) if (before.contains(end)) kept ++;
+            Check.isTrue("boundaries kept after prefix insert, " + kept + " of " + chunks.size(), kept >= chunks.size() - 2);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                TestFiles.delete(root);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static List<ContentDefinedChunker.Chunk> chunk(ContentDefinedChunker chunker, byte[] data) throws IOException {
+        List<ContentDefinedChunker.Chunk> chunks = new ArrayList<>();
+        chunker.chunk(new ByteArrayInputStream(data), chunks::add);
+        return chunks;
+    }
+
+    private static List<Long> ends(List<ContentDefinedChunker.Chunk> chunks, long shift) {
+        List<Long> ends = new ArrayList<>();
+        for (ContentDefinedChunker.Chunk chunk : chunks) ends.add(chunk.getOffset() + chunk.getLength() + shift);
+        return ends;
+    }
+
+}
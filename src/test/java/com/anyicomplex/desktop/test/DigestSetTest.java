@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.DigestSet;
+import com.anyicomplex.desktop.util.MessageDigestHelper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class DigestSetTest {
+
+    public static void main(String[] args) {
+        Path root = null;
+        try {
+            int count = 50000;
+            byte[][] inputs = new byte[count * 2][];
+            for (int i = 0; i < inputs.length; i ++) inputs[i] = String.valueOf(i).getBytes();
+            // SHA-1 digests are 20 bytes, not a multiple of 8
+            byte[] digests = MessageDigestHelper.hashBatch(MessageDigestHelper.HashType.SHA1, inputs);
+            int length = MessageDigestHelper.digestLength(MessageDigestHelper.HashType.SHA1);
+            for (boolean bloom : new boolean[] {false, true}) {
+                DigestSet set = new DigestSet(length, bloom ? count : 16, bloom);
+                boolean added = true;
+                for (int i = 0; i < count; i ++) added &= set.add(digests, i * length);
+                Check.isTrue("added, bloom " + bloom, added && set.size() == count);
+                Check.isTrue("duplicate not added", !set.add(digests, 0) && set.size() == count);
+                Check.equal("contains added", count, countContained(set, digests, 0, count));
+                Check.equal("absent not contained", 0, countContained(set, digests, count, count * 2));
+                if (root == null) root = Files.createTempDirectory("DigestSetTest");
+                Path file = root.resolve("set.digests");
+                set.save(file);
+                set.add(digests, count * length);
+                set.save(file);
+                DigestSet loaded = DigestSet.load(file);
+                Check.isTrue("loaded size", loaded.size() == count + 1 && loaded.getDigestLength() == length);
+                Check.equal("loaded contains added", count + 1, countContained(loaded, digests, 0, count + 1));
+                Check.equal("loaded absent not contained", 0, countContained(loaded, digests, count + 1, count * 2));
+                try (Stream<Path> files = Files.list(root)) {
+                    Check.equal("no temp files left", 1L, files.count());
+                }
+            }
+            Path corrupt = root.resolve("corrupt.digests");
+            Files.write(corrupt, new byte[64]);
+            Check.raises("corrupt file", IOException.class, () -> DigestSet.load(corrupt));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                TestFiles.delete(root);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static int countContained(DigestSet set, byte[] digests, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i ++) if (set.contains(digests, i * set.getDigestLength())) count ++;
+        return count;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.ChecksumVerifier;
+import com.anyicomplex.desktop.util.DirectoryHash;
+import com.anyicomplex.desktop.util.HashCache;
+import com.anyicomplex.desktop.util.HexCodec;
+import com.anyicomplex.desktop.util.MessageDigestHelper;
+import com.anyicomplex.desktop.util.SystemInfo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class DirectoryHashTest {
+
+    private static final String SHA256_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private static final String SHA256_EMPTY = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    public static void main(String[] args) {
+        Path root = null;
+        try {
+            root = Files.createTempDirectory("DirectoryHashTest");
+            Path tree = root.resolve("tree");
+            TestFiles.write(tree.resolve("a.txt"), "abc".getBytes(StandardCharsets.US_ASCII));
+            TestFiles.write(tree.resolve("sub").resolve("b.txt"), new byte[0]);
+            TestFiles.write(tree.resolve("sub").resolve("deep").resolve("c.txt"), "abc".getBytes(StandardCharsets.US_ASCII));
+            DirectoryHash hash = DirectoryHash.compute(MessageDigestHelper.HashType.SHA256, tree);
+            String expected = SHA256_ABC + "  a.txt\n" + SHA256_EMPTY + "  sub/b.txt\n" + SHA256_ABC + "  sub/deep/c.txt\n";
+            StringBuilder manifest = new StringBuilder();
+            hash.writeManifest(manifest);
+            Check.equal("manifest", expected, manifest.toString());
+            Check.equal("digest", HexCodec.encode(MessageDigest.getInstance("SHA-256").digest(expected.getBytes(StandardCharsets.UTF_8))),
+                    HexCodec.encode(hash.getDigest()));
+            HashCache cache = new HashCache(root.resolve(HashCache.INDEX_FILE_NAME));
+            DirectoryHash cached = DirectoryHash.compute(MessageDigestHelper.HashType.SHA256, tree, 1, cache);
+            Check.isTrue("same with cache and one thread", hash.matches(cached));
+            Check.equal("files cached", 3, cache.size());
+            Check.isTrue("same from cache", hash.matches(DirectoryHash.compute(MessageDigestHelper.HashType.SHA256, tree, 2, cache)));
+            TestFiles.write(tree.resolve("sub").resolve("b.txt"), "x".getBytes(StandardCharsets.US_ASCII));
+            Check.isTrue("changed file detected", !hash.matches(DirectoryHash.compute(MessageDigestHelper.HashType.SHA256, tree, 2, cache)));
+            // Backslash and newline are not allowed in Windows file names
+            if (!SystemInfo.isWindows()) {
+                Path escaped = root.resolve("escaped");
+                TestFiles.write(escaped.resolve("back\\slash.txt"), "abc".getBytes(StandardCharsets.US_ASCII));
+                TestFiles.write(escaped.resolve("new\nline.txt"), new byte[0]);
+                TestFiles.write(escaped.resolve("plain.txt"), new byte[0]);
+                hash = DirectoryHash.compute(MessageDigestHelper.HashType.SHA256, escaped);
+                expected = "\\" + SHA256_ABC + "  back\\\\slash.txt\n\\" + SHA256_EMPTY + "  new\\nline.txt\n" + SHA256_EMPTY + "  plain.txt\n";
+                manifest.setLength(0);
+                hash.writeManifest(manifest);
+                Check.equal("escaped manifest", expected, manifest.toString());
+                Check.equal("escaped digest", HexCodec.encode(MessageDigest.getInstance("SHA-256").digest(expected.getBytes(StandardCharsets.UTF_8))),
+                        HexCodec.encode(hash.getDigest()));
+                Path manifestFile = escaped.resolve("SHA256SUMS");
+                hash.writeManifest(manifestFile);
+                ChecksumVerifier.Result result = ChecksumVerifier.verify(manifestFile);
+                Check.isTrue("escaped manifest verified", result.isSuccess() && result.getVerified() == 3);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                TestFiles.delete(root);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.DuplicateFinder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class DuplicateFinderTest {
+
+    public static void main(String[] args) {
+        Path root = null;
+        try {
+            root = Files.createTempDirectory("DuplicateFinderTest");
+            byte[] text = "hello world".getBytes(StandardCharsets.UTF_8);
+            Path one = TestFiles.write(root.resolve("a/one.txt"), text);
+            Path oneCopy = TestFiles.write(root.resolve("b/one-copy.txt"), text);
+            Path oneAgain = TestFiles.write(root.resolve("b/c/one-again.txt"), text);
+            // same size as one.txt, different content
+            TestFiles.write(root.resolve("a/other.txt"), "hello worle".getBytes(StandardCharsets.UTF_8));
+            // large files share first and last sample, so only full stage can tell them apart
+            byte[] large = new byte[40000];
+            new Random(1).nextBytes(large);
+            Path large1 = TestFiles.write(root.resolve("a/large-1.bin"), large);
+            Path large2 = TestFiles.write(root.resolve("b/large-2.bin"), large);
+            byte[] changed = large.clone();
+            changed[changed.length / 2] ^= 1;
+            Path changed1 = TestFiles.write(root.resolve("a/changed-1.bin"), changed);
+            Path changed2 = TestFiles.write(root.resolve("b/c/changed-2.bin"), changed);
+            TestFiles.write(root.resolve("a/unique.bin"), new byte[12345]);
+            TestFiles.write(root.resolve("a/empty-1"), new byte[0]);
+            TestFiles.write(root.resolve("b/empty-2"), new byte[0]);
+
+            List<List<Path>> expected = Arrays.asList(
+                    Arrays.asList(changed1, changed2),
+                    Arrays.asList(large1, large2),
+                    Arrays.asList(one, oneAgain, oneCopy));
+            expected.sort((first, second) -> first.get(0).compareTo(second.get(0)));
+            DuplicateFinder finder = new DuplicateFinder("SHA-256", 1024, 2);
+            Check.equal("groups", expected, finder.find(root));
+            Check.equal("groups, split roots", expected, finder.find(root.resolve("a"), root.resolve("b")));
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile).collect(Collectors.toCollection(ArrayList::new));
+            }
+            Check.equal("groups, file list", expected, finder.find(files));
+            Check.equal("groups, overlapping roots", expected, finder.find(root, root.resolve("b"), root.resolve("a")));
+            Check.isTrue("nothing skipped", finder.getSkipped().isEmpty());
+            files.add(root.resolve("b").resolve("..").resolve("a").resolve("one.txt"));
+            files.add(root.resolve("a").resolve(".").resolve("large-1.bin"));
+            Check.equal("groups, aliased paths", expected, finder.find(files));
+            Path missing = root.resolve("missing");
+            Check.equal("groups, missing root", expected, finder.find(root, missing));
+            Check.equal("skipped", Collections.singletonList(missing), finder.getSkipped());
+            Check.equal("groups, default sample size", expected, new DuplicateFinder("SHA-256").find(root));
+            Check.equal("no duplicates", new ArrayList<>(), finder.find(root.resolve("a")));
+            Path links = Files.createDirectory(root.resolve("links"));
+            Path linked = TestFiles.write(links.resolve("linked.txt"), text);
+            Files.createLink(links.resolve("hard-link.txt"), linked);
+            Check.equal("hard links", new ArrayList<>(), finder.find(links));
+            Check.raises("zero sample size", IllegalArgumentException.class, () -> new DuplicateFinder("SHA-256", 0, 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                TestFiles.delete(root);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
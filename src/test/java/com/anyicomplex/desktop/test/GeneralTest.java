@@ -39,11 +39,61 @@ public class GeneralTest {
         SystemInfoTest.main(null);
     }
 
+    @Test
+    public void MessageDigestHelper() {
+        MessageDigestHelperTest.main(null);
+    }
+
+    @Test
+    public void HashCache() {
+        HashCacheTest.main(null);
+    }
+
+    @Test
+    public void DirectoryHash() {
+        DirectoryHashTest.main(null);
+    }
+
+    @Test
+    public void ChecksumVerifier() {
+        ChecksumVerifierTest.main(null);
+    }
+
+    @Test
+    public void HashPipeline() {
+        HashPipelineTest.main(null);
+    }
+
+    @Test
+    public void ContentDefinedChunker() {
+        ContentDefinedChunkerTest.main(null);
+    }
+
+    @Test
+    public void DigestSet() {
+        DigestSetTest.main(null);
+    }
+
+    @Test
+    public void DuplicateFinder() {
+        DuplicateFinderTest.main(null);
+    }
+
+    @Test
+    public void PasswordHash() {
+        PasswordHashTest.main(null);
+    }
+
     @Test
     public void SystemPath() {
         SystemPathTest.main(null);
     }
 
+    @Test
+    public void AppDirectories() {
+        AppDirectoriesTest.main(null);
+    }
+
     @Test
     public void OpenLinkInBrowser() {
         OpenLinkInBrowserTest.main(null);
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.HashCache;
+import com.anyicomplex.desktop.util.HexCodec;
+import com.anyicomplex.desktop.util.MessageDigestHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class HashCacheTest {
+
+    private static final String SHA256_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    public static void main(String[] args) {
+        Path root = null;
+        try {
+            root = Files.createTempDirectory("HashCacheTest");
+            Path file = TestFiles.write(root.resolve("abc.txt"), "abc".getBytes(StandardCharsets.US_ASCII));
+            Path index = root.resolve("cache").resolve(HashCache.INDEX_FILE_NAME);
+            HashCache cache = new HashCache(index);
+            Check.equal("hash", SHA256_ABC, HexCodec.encode(cache.hash(MessageDigestHelper.HashType.SHA256, file)));
+            Check.equal("cached", 1, cache.size());
+            cache.save();
+            HashCache loaded = new HashCache(index);
+            Check.equal("loaded", SHA256_ABC, HexCodec.encode(loaded.get(MessageDigestHelper.HashType.SHA256, file)));
+            Check.equal("other type not cached", null, loaded.get(MessageDigestHelper.HashType.MD5, file));
+            TestFiles.write(file, "abcd".getBytes(StandardCharsets.US_ASCII));
+            Check.equal("changed file not served", null, loaded.get(MessageDigestHelper.HashType.SHA256, file));
+            Check.equal("changed file rehashed", MessageDigestHelper.sha256("abcd").toLowerCase(),
+                    HexCodec.encode(loaded.hash(MessageDigestHelper.HashType.SHA256, file)));
+            Path recent = root.resolve("recent.txt");
+            Files.write(recent, "abc".getBytes(StandardCharsets.US_ASCII));
+            Check.equal("recent file hashed", SHA256_ABC, HexCodec.encode(loaded.hash(MessageDigestHelper.HashType.SHA256, recent)));
+            Check.equal("recent file not cached", null, loaded.get(MessageDigestHelper.HashType.SHA256, recent));
+            loaded.invalidate(file);
+            Check.equal("invalidated", 0, loaded.size());
+            Files.write(index, new byte[] {1, 2, 3});
+            PrintStream err = System.err;
+            ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            System.setErr(new PrintStream(captured, true));
+            try {
+                Check.equal("corrupt index discarded", 0, new HashCache(index).size());
+            } finally {
+                System.setErr(err);
+            }
+            Check.isTrue("corrupt index reported", captured.toString().contains("EOFException"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                TestFiles.delete(root);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
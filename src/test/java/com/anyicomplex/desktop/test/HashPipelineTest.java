@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.HashPipeline;
+import com.anyicomplex.desktop.util.MessageDigestHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HashPipelineTest {
+
+    public static void main(String[] args) {
+        try {
+            HashPipeline pipeline = new HashPipeline(1024, 3);
+            Random random = new Random(1);
+            long total = 0;
+            for (int size : new int[] {0, 1, 1023, 1024, 3 * 1024 + 5, 100000}) {
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                byte[] expected = MessageDigest.getInstance("SHA-256").digest(data);
+                Check.equal("pipelined " + size + " bytes", expected, pipeline.hash(MessageDigestHelper.HashType.SHA256, new SlowInputStream(data, 100)));
+                total += size;
+            }
+            Check.equal("bytes hashed", total, pipeline.getBytesHashed());
+            byte[] data = new byte[10240];
+            random.nextBytes(data);
+            // The reader runs on its own thread, so interrupting it on the second read must fail the call instead of truncating
+            InputStream interrupting = new SlowInputStream(data, 1024) {
+                int reads = 0;
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    if (++ reads == 2) Thread.currentThread().interrupt();
+                    return super.read(buffer, offset, length);
+                }
+            };
+            Check.raises("interrupted reader", InterruptedIOException.class,
+                    () -> new HashPipeline(1024, 2).hash(MessageDigestHelper.HashType.SHA256, interrupting));
+            InputStream broken = new InputStream() {
+                int reads = 0;
+                @Override
+                public int read() throws IOException {
+                    if (++ reads > 3000) throw new IOException("broken stream");
+                    return 0;
+                }
+            };
+            Check.raises("reader error", IOException.class, () -> new HashPipeline(1024, 2).hash(MessageDigestHelper.HashType.SHA256, broken));
+            // Reader must have stopped when a failing digest ends the call, even on an endless stream
+            AtomicInteger reads = new AtomicInteger();
+            InputStream endless = new InputStream() {
+                @Override
+                public int read() {
+                    reads.incrementAndGet();
+                    return 0;
+                }
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    reads.incrementAndGet();
+                    return length;
+                }
+            };
+            Check.raises("digest error", IllegalStateException.class, () -> new HashPipeline(1024, 2).update(new FailingDigest(3), endless));
+            int readsAfterReturn = reads.get();
+            Thread.sleep(100);
+            Check.equal("no reads after return", readsAfterReturn, reads.get());
+            // A reader blocked in an interruptible read must not hang the failing call
+            PipedInputStream blocking = new PipedInputStream(4096);
+            PipedOutputStream writer = new PipedOutputStream(blocking);
+            writer.write(new byte[1024]);
+            Thread caller = new Thread(() -> Check.raises("digest error with blocked reader", IllegalStateException.class,
+                    () -> new HashPipeline(1024, 2).update(new FailingDigest(1), blocking)));
+            caller.setDaemon(true);
+            caller.start();
+            caller.join(10000);
+            Check.isTrue("blocked reader interrupted", !caller.isAlive());
+            writer.close();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Digest failing on given update, like a consumer-side error.
+     */
+    private static class FailingDigest extends MessageDigest {
+
+        private int updates;
+
+        FailingDigest(int failingUpdate) {
+            super("Failing");
+            updates = failingUpdate;
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+            engineUpdate(new byte[] {input}, 0, 1);
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int length) {
+            if (-- updates > 0) return;
+            try {
+                // Give reader time to block in next read
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("digest failed");
+        }
+
+        @Override
+        protected byte[] engineDigest() {
+            return new byte[0];
+        }
+
+        @Override
+        protected void engineReset() {
+        }
+
+    }
+
+    /**
+     * Stream returning at most a few bytes per read, like a slow network stream.
+     */
+    private static class SlowInputStream extends ByteArrayInputStream {
+
+        private final int maxRead;
+
+        SlowInputStream(byte[] data, int maxRead) {
+            super(data);
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) {
+            return super.read(buffer, offset, Math.min(length, maxRead));
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.HexCodec;
+import com.anyicomplex.desktop.util.MessageDigestHelper;
+
+import java.util.Random;
+
+/**
+ * Compare scalar and SIMD hex codec by running twice, with classes built by "gradle -PvectorHex":<br>
+ * java -cp ... com.anyicomplex.desktop.test.HexCodecBenchmark<br>
+ * java --add-modules jdk.incubator.vector -cp ... com.anyicomplex.desktop.test.HexCodecBenchmark
+ */
+public class HexCodecBenchmark {
+
+    private static volatile int sink;
+
+    public static void main(String[] args) {
+        System.out.println("Vectorized: " + HexCodec.isVectorized());
+        Random random = new Random(0);
+        byte[] digest = new byte[32];
+        random.nextBytes(digest);
+        byte[] other = digest.clone();
+        byte[] bulk = new byte[1024 * 1024];
+        random.nextBytes(bulk);
+        byte[] digestHex = new byte[64];
+        byte[] bulkHex = new byte[bulk.length * 2];
+        HexCodec.encode(bulk, 0, bulk.length, bulkHex, 0, false);
+        for (int round = 0; round < 3; round ++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 10_000_000; i ++) sink += HexCodec.encode(digest, 0, 32, digestHex, 0, false);
+            System.out.printf("encode 32 B: %.1f ns/op%n", (System.nanoTime() - start) / 10_000_000.0);
+            start = System.nanoTime();
+            for (int i = 0; i < 10_000_000; i ++) sink += HexCodec.decode(digestHex, 0, 64, digest, 0);
+            System.out.printf("decode 32 B: %.1f ns/op%n", (System.nanoTime() - start) / 10_000_000.0);
+            start = System.nanoTime();
+            for (int i = 0; i < 10_000_000; i ++) sink += MessageDigestHelper.isEqual(digest, other) ? 1 : 0;
+            System.out.printf("isEqual 32 B: %.1f ns/op%n", (System.nanoTime() - start) / 10_000_000.0);
+            start = System.nanoTime();
+            for (int i = 0; i < 200; i ++) sink += HexCodec.encode(bulk, 0, bulk.length, bulkHex, 0, false);
+            System.out.printf("encode 1 MiB: %.0f MB/s%n", 200.0 * bulk.length / ((System.nanoTime() - start) / 1e3));
+            start = System.nanoTime();
+            for (int i = 0; i < 200; i ++) sink += HexCodec.decode(bulkHex, 0, bulkHex.length, bulk, 0);
+            System.out.printf("decode 1 MiB: %.0f MB/s%n", 200.0 * bulk.length / ((System.nanoTime() - start) / 1e3));
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.Base32Codec;
+import com.anyicomplex.desktop.util.FastHash;
+import com.anyicomplex.desktop.util.HexCodec;
+import com.anyicomplex.desktop.util.MessageDigestHelper;
+import com.anyicomplex.desktop.util.TreeHash;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MessageDigestHelperTest {
+
+    public static void main(String[] args) {
+        Check.equal("md5", "900150983CD24FB0D6963F7D28E17F72", MessageDigestHelper.md5("abc"));
+        Check.equal("sha1", "A9993E364706816ABA3E25717850C26C9CD0D89D", MessageDigestHelper.sha1("abc"));
+        Check.equal("sha256", "BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD", MessageDigestHelper.sha256("abc"));
+        Check.equal("sha512", "DDAF35A193617ABACC417349AE20413112E6FA4E89A97EA20A9EEEE64B55D39A" +
+                "2192992A274FC1A836BA3C23A3FEEBBD454D4423643CE80E2A9AC94FA54CA49F", MessageDigestHelper.sha512("abc"));
+        Check.equal("utf-8", "3FE21F1528F50FF70F66DCC897C54E682D482FB0B40155D0B6B3B90D5DD0C17F",
+                MessageDigestHelper.sha256("\u4F60\u597D\uD83D\uDE00", StandardCharsets.UTF_8));
+        StringBuilder mixed = new StringBuilder();
+        // spans several buffer flushes, unpaired surrogates are replaced like String.getBytes does
+        for (int i = 0; i < 100000; i ++) mixed.append("a\u00E9\u4F60\uD83D\uDE00").append(i % 97 == 0 ? "\uD83D" : "").append(i % 89 == 0 ? "\uDE00" : "");
+        String text = mixed.toString();
+        Check.equal("utf-8 long", plainDigest("SHA-256", text.getBytes(StandardCharsets.UTF_8)),
+                MessageDigestHelper.hash(MessageDigestHelper.HashType.SHA256, text, StandardCharsets.UTF_8));
+        Check.equal("utf-16", plainDigest("SHA-256", text.getBytes(StandardCharsets.UTF_16LE)),
+                MessageDigestHelper.hash(MessageDigestHelper.HashType.SHA256, text, StandardCharsets.UTF_16LE));
+        Check.equal("iso-8859-1", plainDigest("SHA-256", text.getBytes(StandardCharsets.ISO_8859_1)),
+                MessageDigestHelper.hash(MessageDigestHelper.HashType.SHA256, text, StandardCharsets.ISO_8859_1));
+        Check.equal("xxh64", "44bc2cf5ad770999", Long.toHexString(FastHash.xxHash64("abc".getBytes())));
+        Check.equal("xxh64 empty", "ef46db3751d8e999", Long.toHexString(FastHash.xxHash64(new byte[0])));
+        Check.equal("xxh64 stripes", "fbcea83c8a378bf1", Long.toHexString(FastHash.xxHash64("Nobody inspects the spammish repetition".getBytes())));
+        Check.equal("xxh64 digest", "44bc2cf5ad770999", HexCodec.encode(MessageDigestHelper.hash(MessageDigestHelper.HashType.XXH64, "abc")));
+        Check.equal("murmur3", "6778ad3f3f3f96b4522dca264174a23b", HexCodec.encode(MessageDigestHelper.hash(MessageDigestHelper.HashType.MURMUR3_128, "abc")));
+        Check.equal("crc32c", "e3069283", Long.toHexString(FastHash.crc32c("123456789".getBytes())));
+        Check.equal("crc32c digest", "e3069283", HexCodec.encode(MessageDigestHelper.hash(MessageDigestHelper.HashType.CRC32C, "123456789")));
+        Check.equal("hmac", "F7BC83F430538424B13298E6AA6FB143EF4D59A14946175997479DBC2D1A3CD8",
+                MessageDigestHelper.hmacSha256("key".getBytes(), "The quick brown fox jumps over the lazy dog".getBytes()));
+        // RFC 4231 test case 2, repeated to hit the pooled pre-keyed instance
+        byte[] jefe = "Jefe".getBytes();
+        byte[] question = "what do ya want for nothing?".getBytes();
+        for (int i = 0; i < 2; i ++) {
+            Check.equal("hmac rfc 4231", "5BDCC146BF60754E6A042426089575C75A003F089D2739839DEC58B964EC3843", MessageDigestHelper.hmacSha256(jefe, question));
+            Check.equal("hmac rfc 4231 sha512", "164B7A7BFCF819E2E395FBE73B56E0A387BD64222E831FD610270CD7EA250554" +
+                    "9758BF75C05A994A6D034F65F8F0E6FDCAEAB1A34D4A6B4B636E070A38BCE737", MessageDigestHelper.hmacSha512(jefe, question));
+        }
+        byte[] padded = ("xx" + new String(question) + "yy").getBytes();
+        byte[] macOutput = new byte[40];
+        Check.equal("hmac part length", 32, MessageDigestHelper.hmac(MessageDigestHelper.MacType.HMAC_SHA256, jefe, padded, 2, question.length, macOutput, 8));
+        Check.equal("hmac part", "5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843", HexCodec.encode(Arrays.copyOfRange(macOutput, 8, 40)));
+        Check.raises("hmac short output", IllegalArgumentException.class,
+                () -> MessageDigestHelper.hmac(MessageDigestHelper.MacType.HMAC_SHA256, jefe, question, 0, question.length, new byte[31], 0));
+        Check.equal("hex round trip", "00ff7fab", HexCodec.encode(HexCodec.decode("00ff7FaB")));
+        Check.equal("hex upper", "00FF7FAB", HexCodec.encode(new byte[] {0, (byte) 0xFF, 0x7F, (byte) 0xAB}, true));
+        Check.isTrue("hex empty", HexCodec.encode(new byte[0], true).isEmpty());
+        byte[] backing = new byte[64];
+        ByteBuffer slice = ByteBuffer.wrap(backing, 0, 8).slice();
+        Check.raises("hex encode overflow", BufferOverflowException.class, () -> HexCodec.encode(new byte[16], 0, 16, slice, false));
+        Check.raises("hex decode overflow", BufferOverflowException.class, () -> HexCodec.decode("00112233445566778899", slice));
+        Check.isTrue("hex overflow writes nothing", Arrays.equals(new byte[64], backing) && slice.position() == 0);
+        HexCodec.decode("0a0b", slice);
+        Check.equal("hex decode buffer", "0a0b", HexCodec.encode(Arrays.copyOf(backing, slice.position())));
+        Check.equal("digest length", 32, MessageDigestHelper.digestLength(MessageDigestHelper.HashType.SHA256));
+        MessageDigest digest = MessageDigestHelper.obtain(MessageDigestHelper.HashType.SHA256);
+        digest.update("a".getBytes());
+        digest.update("bc".getBytes());
+        Check.equal("obtained digest", MessageDigestHelper.hash(MessageDigestHelper.HashType.SHA256, "abc"), digest.digest());
+        MessageDigestHelper.free(digest);
+        Check.isTrue("freed digest reused", MessageDigestHelper.obtain(MessageDigestHelper.HashType.SHA256) == digest);
+        byte[][] inputs = new byte[1000][];
+        for (int i = 0; i < inputs.length; i ++) inputs[i] = String.valueOf(i).getBytes();
+        byte[] batch = MessageDigestHelper.hashBatch(MessageDigestHelper.HashType.MD5, inputs);
+        Check.equal("batch length", inputs.length * 16, batch.length);
+        Check.equal("batch last", "b706835de79a2b4e80506f582af3676a", HexCodec.encode(Arrays.copyOfRange(batch, 999 * 16, 1000 * 16)));
+        int batchMatches = 0;
+        for (int i = 0; i < inputs.length; i ++)
+            if (Arrays.equals(plainDigest("MD5", inputs[i]), Arrays.copyOfRange(batch, i * 16, (i + 1) * 16))) batchMatches ++;
+        Check.equal("batch matches", inputs.length, batchMatches);
+        // RFC 4648 section 10 vectors, without padding
+        String[] base32Inputs = {"", "f", "fo", "foo", "foob", "fooba", "foobar"};
+        String[] base32Outputs = {"", "MY", "MZXQ", "MZXW6", "MZXW6YQ", "MZXW6YTB", "MZXW6YTBOI"};
+        for (int i = 0; i < base32Inputs.length; i ++) {
+            Check.equal("base32 \"" + base32Inputs[i] + "\"", base32Outputs[i], Base32Codec.encode(base32Inputs[i].getBytes()));
+            Check.equal("base32 decode", base32Inputs[i], new String(Base32Codec.decode(base32Outputs[i].toLowerCase())));
+        }
+        Check.raises("base32 invalid length", IllegalArgumentException.class, () -> Base32Codec.decode("MZX"));
+        Check.raises("base32 invalid char", IllegalArgumentException.class, () -> Base32Codec.decode("MZ1Q"));
+        byte[] base32Output = new byte[12];
+        Check.equal("base32 into array", 10, Base32Codec.encode("xfoobarx".getBytes(), 1, 6, base32Output, 2));
+        Check.equal("base32 array content", "MZXW6YTBOI", new String(base32Output, 2, 10, StandardCharsets.US_ASCII));
+        byte[] shortOutput = new byte[9];
+        Check.raises("base32 short destination", IndexOutOfBoundsException.class, () -> Base32Codec.encode("foobar".getBytes(), 0, 6, shortOutput, 0));
+        Check.isTrue("base32 short destination writes nothing", Arrays.equals(new byte[9], shortOutput));
+        Check.raises("base32 source range", IndexOutOfBoundsException.class, () -> Base32Codec.encode(new byte[4], 2, 3, new byte[16], 0));
+        Check.equal("hash base32", "XJ4BNP4PAHH6UQKBIDPF3LRCEOYAGYNDSYLXVHFUCD7WD4QACWWQ",
+                MessageDigestHelper.hashBase32(MessageDigestHelper.HashType.SHA256, "abc".getBytes()));
+        Check.equal("hash base64url", "ungWv48Bz-pBQUDeXa4iI7ADYaOWF3qctBD_YfIAFa0",
+                MessageDigestHelper.hashBase64Url(MessageDigestHelper.HashType.SHA256, "abc".getBytes()));
+        Check.equal("hash long", "ba7816bf8f01cfea", Long.toHexString(MessageDigestHelper.hashLong(MessageDigestHelper.HashType.SHA256, "abc".getBytes())));
+        Check.equal("hash long xxh64", "44bc2cf5ad770999", Long.toHexString(MessageDigestHelper.hashLong(MessageDigestHelper.HashType.XXH64, "abc".getBytes())));
+        Check.equal("hash uuid", "ba7816bf-8f01-8fea-8141-40de5dae2223",
+                MessageDigestHelper.hashUUID(MessageDigestHelper.HashType.SHA256, "abc".getBytes()).toString());
+        byte[] hashOutput = new byte[40];
+        Check.equal("hash into buffer length", 32, MessageDigestHelper.hash(MessageDigestHelper.HashType.SHA256, "abc".getBytes(), hashOutput, 4));
+        Check.equal("hash into buffer", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", HexCodec.encode(Arrays.copyOfRange(hashOutput, 4, 36)));
+        Path file = null;
+        try {
+            byte[] data = new byte[1024 * 1024 * 20 + 7];
+            for (int i = 0; i < data.length; i ++) data[i] = (byte) i;
+            file = Files.createTempFile("MessageDigestHelperTest", ".bin");
+            Files.write(file, data);
+            byte[] expected = plainDigest("SHA-256", data);
+            Check.equal("file hash", expected, MessageDigestHelper.hash(MessageDigestHelper.HashType.SHA256, file));
+            Check.equal("stream hash", expected, MessageDigestHelper.hash(MessageDigestHelper.HashType.SHA256, new ByteArrayInputStream(data)));
+            Check.equal("empty stream hash", "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                    HexCodec.encode(MessageDigestHelper.hash(MessageDigestHelper.HashType.SHA256, new ByteArrayInputStream(new byte[0]))));
+            Map<String, byte[]> all = MessageDigestHelper.hashAll(file, true, MessageDigestHelper.HashType.MD5,
+                    MessageDigestHelper.HashType.SHA1, MessageDigestHelper.HashType.SHA256);
+            Check.equal("hash all md5", plainDigest("MD5", data), all.get(MessageDigestHelper.HashType.MD5));
+            Check.equal("hash all sha1", plainDigest("SHA-1", data), all.get(MessageDigestHelper.HashType.SHA1));
+            Check.equal("hash all sha256", expected, all.get(MessageDigestHelper.HashType.SHA256));
+            Map<String, byte[]> sequential = MessageDigestHelper.hashAll(new ByteArrayInputStream(data), false,
+                    MessageDigestHelper.HashType.MD5, MessageDigestHelper.HashType.SHA256);
+            Check.isTrue("hash all stream", sequential.size() == 2 && Arrays.equals(expected, sequential.get(MessageDigestHelper.HashType.SHA256))
+                    && Arrays.equals(all.get(MessageDigestHelper.HashType.MD5), sequential.get(MessageDigestHelper.HashType.MD5)));
+            Map<String, byte[]> small = MessageDigestHelper.hashAll("abc".getBytes(), MessageDigestHelper.HashType.MD5, MessageDigestHelper.HashType.SHA256);
+            Check.equal("hash all bytes md5", "900150983cd24fb0d6963f7d28e17f72", HexCodec.encode(small.get(MessageDigestHelper.HashType.MD5)));
+            Check.equal("hash all bytes sha256", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                    HexCodec.encode(small.get(MessageDigestHelper.HashType.SHA256)));
+            // 21 leaves, so unpaired nodes are promoted on several levels
+            byte[] treeExpected = plainTreeHash(data, 1024 * 1024);
+            Check.equal("tree hash", treeExpected, MessageDigestHelper.treeHash(MessageDigestHelper.HashType.SHA256, file, 1024 * 1024, 4));
+            Check.equal("tree hash, common pool", treeExpected,
+                    TreeHash.compute(MessageDigestHelper.HashType.SHA256, file, 1024 * 1024, 0).getRoot());
+            async(file, data, expected);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                TestFiles.delete(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void async(Path file, byte[] data, byte[] expected) throws IOException {
+        Check.equal("async bytes", "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                HexCodec.encode(MessageDigestHelper.hashAsync(MessageDigestHelper.HashType.SHA256, "abc".getBytes()).join()));
+        Check.equal("async file", expected, MessageDigestHelper.hashAsync(MessageDigestHelper.HashType.SHA256, file).join());
+        Check.equal("async stream", expected, MessageDigestHelper.hashAsync(MessageDigestHelper.HashType.SHA256, new ByteArrayInputStream(data)).join());
+        Check.raises("async unsupported type", RuntimeException.class, () -> MessageDigestHelper.hashAsync("SHA3-999", new byte[1]));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        MessageDigestHelper.setAsyncExecutor(executor);
+        Path sparse = Files.createTempFile("MessageDigestHelperTest", ".sparse");
+        try {
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i ++) futures.add(MessageDigestHelper.hashAsync(MessageDigestHelper.HashType.MD5, String.valueOf(i).getBytes()));
+            int asyncMatches = 0;
+            for (int i = 0; i < futures.size(); i ++)
+                if (Arrays.equals(plainDigest("MD5", String.valueOf(i).getBytes()), futures.get(i).join())) asyncMatches ++;
+            Check.equal("async custom executor", futures.size(), asyncMatches);
+            // hashing 16 GiB takes many seconds, cancelling must free the worker long before
+            try (RandomAccessFile output = new RandomAccessFile(sparse.toFile(), "rw")) {
+                output.setLength(16L * 1024 * 1024 * 1024);
+            }
+            CompletableFuture<byte[]> cancelled = MessageDigestHelper.hashAsync(MessageDigestHelper.HashType.SHA256, sparse);
+            CompletableFuture<byte[]> other = MessageDigestHelper.hashAsync(MessageDigestHelper.HashType.SHA256, sparse);
+            Thread.sleep(100);
+            Check.isTrue("async cancel", cancelled.cancel(true) && other.cancel(true) && cancelled.isCancelled());
+            executor.shutdown();
+            Check.isTrue("async cancel stops hashing", executor.awaitTermination(2, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            MessageDigestHelper.setAsyncExecutor(null);
+            executor.shutdownNow();
+            Files.delete(sparse);
+        }
+    }
+
+    private static byte[] plainTreeHash(byte[] data, int chunkSize) {
+        byte[][] level = new byte[(data.length + chunkSize - 1) / chunkSize][];
+        for (int i = 0; i < level.length; i ++) {
+            byte[] leaf = new byte[Math.min(chunkSize, data.length - i * chunkSize) + 1];
+            System.arraycopy(data, i * chunkSize, leaf, 1, leaf.length - 1);
+            level[i] = plainDigest("SHA-256", leaf);
+        }
+        while (level.length > 1) {
+            byte[][] next = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < next.length; i ++) {
+                if (i * 2 + 1 == level.length) {
+                    next[i] = level[i * 2];
+                    continue;
+                }
+                byte[] node = new byte[65];
+                node[0] = 1;
+                System.arraycopy(level[i * 2], 0, node, 1, 32);
+                System.arraycopy(level[i * 2 + 1], 0, node, 33, 32);
+                next[i] = plainDigest("SHA-256", node);
+            }
+            level = next;
+        }
+        return level[0];
+    }
+
+    private static byte[] plainDigest(String algorithm, byte[] input) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(input);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
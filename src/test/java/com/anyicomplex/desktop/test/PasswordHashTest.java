@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Yi An
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.anyicomplex.desktop.test;
+
+import com.anyicomplex.desktop.util.HexCodec;
+import com.anyicomplex.desktop.util.PasswordHash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class PasswordHashTest {
+
+    public static void main(String[] args) {
+        // PBKDF2-HMAC-SHA256 known answers, the first from RFC 7914 section 11 (RFC 6070 only covers HMAC-SHA1)
+        verifyVector("rfc 7914 c=1", "passwd", "salt", 1,
+                "55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc" +
+                "49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783");
+        verifyVector("sha256 c=1", "password", "salt", 1,
+                "120fb6cffcf8b32c43e7225256c4f837a86548c92ccc35480805987cb70be17b");
+        verifyVector("sha256 c=4096", "password", "salt", 4096,
+                "c5e478d59288c841aa530db6845c4c8d962893a001ce4e11a4963873aa98134a");
+
+        int previous = PasswordHash.getIterations();
+        try {
+            String encoded = PasswordHash.hash("secret".toCharArray(), 1000);
+            Check.isTrue("format", encoded.startsWith("pbkdf2-sha256$1000$"));
+            Check.isTrue("round trip", PasswordHash.verify("secret".toCharArray(), encoded));
+            Check.isTrue("wrong password", !PasswordHash.verify("Secret".toCharArray(), encoded));
+            Check.isTrue("salted", !encoded.equals(PasswordHash.hash("secret".toCharArray(), 1000)));
+            PasswordHash.setIterations(PasswordHash.MIN_ITERATIONS);
+            Check.isTrue("needs rehash", PasswordHash.needsRehash(encoded));
+            Check.isTrue("no rehash needed", !PasswordHash.needsRehash(PasswordHash.hash("secret".toCharArray())));
+            Check.isTrue("async verify", PasswordHash.verifyAsync("secret".toCharArray(), encoded).join());
+            Check.isTrue("async wrong password", !PasswordHash.verifyAsync("wrong".toCharArray(), encoded).join());
+            Check.isTrue("calibrate", PasswordHash.calibrate(1) >= PasswordHash.MIN_ITERATIONS);
+            Check.raises("too few iterations", IllegalArgumentException.class, () -> PasswordHash.setIterations(PasswordHash.MIN_ITERATIONS - 1));
+            Check.raises("unknown format", IllegalArgumentException.class, () -> PasswordHash.verify("secret".toCharArray(), "md5$1$c2FsdA$AA"));
+            Check.raises("zero iterations", IllegalArgumentException.class, () -> PasswordHash.verify("secret".toCharArray(), "pbkdf2-sha256$0$c2FsdA$AA"));
+        } finally {
+            PasswordHash.setIterations(previous);
+        }
+    }
+
+    private static void verifyVector(String name, String password, String salt, int iterations, String expected) {
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        String encoded = "pbkdf2-sha256$" + iterations + '$' + encoder.encodeToString(salt.getBytes(StandardCharsets.UTF_8)) +
+                '$' + encoder.encodeToString(HexCodec.decode(expected));
+        Check.isTrue(name, PasswordHash.verify(password.toCharArray(), encoded));
+        Check.isTrue(name + ", wrong password", !PasswordHash.verify((password + "!").toCharArray(), encoded));
+    }
+
+}
@@ -25,6 +25,7 @@
 
 package com.anyicomplex.desktop.test;
 
+import com.anyicomplex.desktop.util.PathBuilder;
 import com.anyicomplex.desktop.util.PathHelper;
 
 public class PathHelperTest {
@@ -44,6 +45,11 @@ public class PathHelperTest {
         System.out.println(PathHelper.buildAppConfigPath("PathHelperTest"));
         System.out.println(PathHelper.buildAppCachePath("PathHelperTest"));
         System.out.println(PathHelper.build("\\abcde/fghijkl\\mnop"));
+        System.out.println(PathHelper.build(" a// ", "  /b\\\\c/ ", "", null, "d "));
+        System.out.println(PathHelper.buildPath("1", "2").getFileName());
+        System.out.println(PathHelper.normalize("a//b/./c/../d") + " " + PathHelper.normalize("/../a/..") + " " + PathHelper.normalize("a/../../b"));
+        System.out.println(PathHelper.under("/tmp//x/./y/..").shard("abcdef", 2, 2) + " " + PathHelper.under("/tmp").resolve("a", " b/ "));
+        System.out.println(new PathBuilder().append("/", "x").append("y/").toPath());
     }
 
 }
@@ -25,6 +25,7 @@
 
 package com.anyicomplex.desktop.test;
 
+import com.anyicomplex.desktop.util.PathHelper;
 import com.anyicomplex.desktop.util.SystemPath;
 
 public class SystemPathTest {
@@ -35,6 +36,34 @@ public class SystemPathTest {
         System.out.println("User config home: " + SystemPath.userConfig());
         System.out.println("User cache home: " + SystemPath.userCache());
         System.out.println("System tmp dir: " + SystemPath.temporary());
+        SystemPath.override(SystemPath.Location.HOME, "/home/test");
+        System.out.println("Overridden user data home: " + SystemPath.userData());
+        SystemPath.clearOverrides();
+        System.out.println("Restored user data home: " + SystemPath.userData());
+        String home = System.getProperty("user.home");
+        try {
+            String original = PathHelper.buildAppDataPath("anyicomplex", "SystemPathTest");
+            Check.equal("app data path", PathHelper.build(SystemPath.userData(), "anyicomplex", "SystemPathTest"), original);
+            SystemPath.override(SystemPath.Location.DATA, "/tmp/SystemPathTest/data/");
+            Check.equal("overridden app data path", PathHelper.build("/tmp/SystemPathTest/data", "anyicomplex", "SystemPathTest"),
+                    PathHelper.buildAppDataPath("anyicomplex", "SystemPathTest"));
+            Check.equal("overridden app config path", PathHelper.build(SystemPath.userConfig(), "anyicomplex", "SystemPathTest"),
+                    PathHelper.buildAppConfigPath("anyicomplex", "SystemPathTest"));
+            SystemPath.clearOverrides();
+            Check.equal("cleared app data path", original, PathHelper.buildAppDataPath("anyicomplex", "SystemPathTest"));
+            // Without environment, data path derives from user home on every system
+            SystemPath.setEnvironment(name -> null);
+            String derived = PathHelper.buildAppDataPath("anyicomplex", "SystemPathTest");
+            System.setProperty("user.home", PathHelper.build(home, "SystemPathTest"));
+            Check.equal("memoized before refresh", derived, PathHelper.buildAppDataPath("anyicomplex", "SystemPathTest"));
+            SystemPath.refresh();
+            Check.isTrue("refreshed app data path", PathHelper.buildAppDataPath("anyicomplex", "SystemPathTest")
+                    .startsWith(PathHelper.build(home, "SystemPathTest")));
+        } finally {
+            System.setProperty("user.home", home);
+            SystemPath.setEnvironment(null);
+            SystemPath.clearOverrides();
+        }
     }
 
 }